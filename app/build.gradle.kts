@@ -29,13 +29,106 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Lets tests construct android.jar classes such as ContextWrapper
+        unitTests.isReturnDefaultValues = true
+        // Timing benchmarks are skipped unless asked for: ./gradlew test -Pbenchmark
+        unitTests.all {
+            if (project.hasProperty("benchmark")) it.systemProperty("benchmark", "true")
+        }
+    }
+}
+
+/**
+ * The core classes are kept as flat snapshot files in this directory, several
+ * top-level classes to a file. This writes each class of one package to its own
+ * compilation unit so javac accepts them.
+ */
+abstract class SplitSnapshotSources : DefaultTask() {
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NAME_ONLY)
+    abstract val sources: ConfigurableFileCollection
+
+    @get:Input
+    abstract val packageName: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun split() {
+        val packagePattern = Regex("^package ([\\w.]+);", RegexOption.MULTILINE)
+        val publicType = Regex("^public\\s+(?:(?:final|abstract)\\s+)*(?:class|interface|enum)\\s+(\\w+)", RegexOption.MULTILINE)
+        val anyType = Regex("^(?:(?:final|abstract)\\s+)*(?:class|interface|enum)\\s+(\\w+)", RegexOption.MULTILINE)
+
+        val root = outputDir.get().asFile
+        root.deleteRecursively()
+        val declaredIn = mutableMapOf<String, String>()
+        for (source in sources.files.sortedBy { it.name }) {
+            for (unit in compilationUnits(source.readLines())) {
+                if (packagePattern.find(unit)?.groupValues?.get(1) != packageName.get()) continue
+                val type = (publicType.find(unit) ?: anyType.find(unit))?.groupValues?.get(1)
+                    ?: throw GradleException("No top-level type in a class of ${source.name}")
+                val previous = declaredIn.put(type, source.name)
+                if (previous != null) {
+                    throw GradleException("$type is declared in both $previous and ${source.name}")
+                }
+                val target = File(root, packageName.get().replace('.', '/') + "/$type.java")
+                target.parentFile.mkdirs()
+                target.writeText(unit)
+            }
+        }
+    }
+
+    // A second package line starts the next class; its "// Name.java" header goes with it
+    private fun compilationUnits(lines: List<String>): List<String> {
+        val units = mutableListOf<List<String>>()
+        var current = mutableListOf<String>()
+        for (line in lines) {
+            if (line.startsWith("package ") && current.any { it.startsWith("package ") }) {
+                val header = mutableListOf<String>()
+                while (current.isNotEmpty() && (current.last().startsWith("//") || current.last().isBlank())) {
+                    header.add(0, current.removeAt(current.size - 1))
+                }
+                units.add(current)
+                current = header
+            }
+            current.add(line)
+        }
+        units.add(current)
+        return units.map { it.joinToString("\n", postfix = "\n") }
+    }
+}
+
+val splitCoreSources = tasks.register<SplitSnapshotSources>("splitCoreSources") {
+    // fixed_*.java and missingclasses.java are copies of other files here. The UI
+    // classes are left out: their layouts and R class are not set up in this module.
+    sources.from(fileTree(projectDir) {
+        include("*.java")
+        exclude("fixed_*.java", "missingclasses.java")
+    })
+    packageName.set("com.aiagent.framework.core")
+    outputDir.set(layout.buildDirectory.dir("generated/snapshot/java"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.java?.addGeneratedSourceDirectory(splitCoreSources, SplitSnapshotSources::outputDir)
+    }
 }
 
 dependencies {
 
     implementation(libs.appcompat)
     implementation(libs.material)
+    // JavaScriptExecutor, its pooled Rhino contexts and the compiled-script cache
+    implementation(libs.rhino)
     testImplementation(libs.junit)
+    // android.jar only has stubs of org.json, which throw in local unit tests
+    testImplementation(libs.json)
+    // PythonExecutor's embedded interpreter; optional at runtime, and PythonExecutorTest
+    // skips its checks without it
+    testImplementation(libs.jython.standalone)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
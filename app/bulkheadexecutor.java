@@ -0,0 +1,297 @@
+// ExecutionConfig.java
+package com.aiagent.framework.core;
+
+/**
+ * Sizing for the agent's executors. Chat queries and code execution get separate
+ * pools, so a slow script cannot starve chat responses.
+ */
+public class ExecutionConfig {
+    public enum RejectionPolicy {
+        /** Fail the submission; the caller reports the agent as busy. */
+        ABORT,
+        /** Run the task on the submitting thread, slowing the producer down. */
+        CALLER_RUNS
+    }
+
+    private int queryThreads = 4;
+    private int queryQueueCapacity = 64;
+    // Executions share no state, so code can use every core
+    private int codeThreads = Runtime.getRuntime().availableProcessors();
+    private int codeQueueCapacity = 16;
+    private boolean virtualThreads = false;
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+    private SandboxLimits sandboxLimits = new SandboxLimits();
+    private int batchParallelism = -1;
+    private int learningPatternCapacity = LearningEngine.DEFAULT_PATTERN_CAPACITY;
+    private int learningQueueCapacity = 1024;
+    private int learningBatchSize = 64;
+    private LearningPipeline.OverflowPolicy learningOverflowPolicy = LearningPipeline.OverflowPolicy.DROP_OLDEST;
+    private long learningBlockTimeoutMillis = 10;
+
+    public ExecutionConfig setQueryThreads(int queryThreads) {
+        this.queryThreads = queryThreads;
+        return this;
+    }
+
+    public ExecutionConfig setQueryQueueCapacity(int queryQueueCapacity) {
+        this.queryQueueCapacity = queryQueueCapacity;
+        return this;
+    }
+
+    public ExecutionConfig setCodeThreads(int codeThreads) {
+        this.codeThreads = codeThreads;
+        return this;
+    }
+
+    public ExecutionConfig setCodeQueueCapacity(int codeQueueCapacity) {
+        this.codeQueueCapacity = codeQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Runs tasks on virtual threads where the runtime has them (JDK 21+); thread
+     * counts then cap concurrency instead of pool size. Ignored elsewhere.
+     */
+    public ExecutionConfig setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public ExecutionConfig setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+        return this;
+    }
+
+    /**
+     * Workers one {@code executeBatch} call may occupy; defaults to the code thread count.
+     */
+    public ExecutionConfig setBatchParallelism(int batchParallelism) {
+        this.batchParallelism = batchParallelism;
+        return this;
+    }
+
+    /**
+     * Per-execution budget for scripts run on the code pool.
+     */
+    public ExecutionConfig setSandboxLimits(SandboxLimits sandboxLimits) {
+        this.sandboxLimits = sandboxLimits;
+        return this;
+    }
+
+    /**
+     * Interactions the learning engine remembers, up to {@link PatternRing#MAX_CAPACITY}.
+     */
+    public ExecutionConfig setLearningPatternCapacity(int learningPatternCapacity) {
+        this.learningPatternCapacity = learningPatternCapacity;
+        return this;
+    }
+
+    /**
+     * Learning events waiting for the background learner; see {@link LearningPipeline}.
+     */
+    public ExecutionConfig setLearningQueueCapacity(int learningQueueCapacity) {
+        this.learningQueueCapacity = learningQueueCapacity;
+        return this;
+    }
+
+    /** Most events the learner takes from its queue at once. */
+    public ExecutionConfig setLearningBatchSize(int learningBatchSize) {
+        this.learningBatchSize = learningBatchSize;
+        return this;
+    }
+
+    /**
+     * What to do when the learning queue is full. {@code BLOCK} makes replies wait up
+     * to {@link #setLearningBlockTimeoutMillis} for the learner to catch up.
+     */
+    public ExecutionConfig setLearningOverflowPolicy(LearningPipeline.OverflowPolicy learningOverflowPolicy) {
+        this.learningOverflowPolicy = learningOverflowPolicy;
+        return this;
+    }
+
+    public ExecutionConfig setLearningBlockTimeoutMillis(long learningBlockTimeoutMillis) {
+        this.learningBlockTimeoutMillis = learningBlockTimeoutMillis;
+        return this;
+    }
+
+    // Getters
+    public int getQueryThreads() { return queryThreads; }
+    public int getQueryQueueCapacity() { return queryQueueCapacity; }
+    public int getCodeThreads() { return codeThreads; }
+    public int getCodeQueueCapacity() { return codeQueueCapacity; }
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public RejectionPolicy getRejectionPolicy() { return rejectionPolicy; }
+    public SandboxLimits getSandboxLimits() { return sandboxLimits; }
+    public int getBatchParallelism() { return batchParallelism > 0 ? batchParallelism : codeThreads; }
+    public int getLearningPatternCapacity() { return learningPatternCapacity; }
+    public int getLearningQueueCapacity() { return learningQueueCapacity; }
+    public int getLearningBatchSize() { return learningBatchSize; }
+    public LearningPipeline.OverflowPolicy getLearningOverflowPolicy() { return learningOverflowPolicy; }
+    public long getLearningBlockTimeoutMillis() { return learningBlockTimeoutMillis; }
+}
+
+// BulkheadExecutor.java
+package com.aiagent.framework.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor with a fixed concurrency limit and a bounded backlog. Backed by a
+ * platform thread pool, or by virtual threads gated with semaphores when the
+ * runtime supports them. Queue depth and rejections are counted so saturation
+ * is visible.
+ */
+public class BulkheadExecutor implements Executor {
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final ExecutionConfig.RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService virtualExecutor;
+    private final Semaphore admission;
+    private final Semaphore running;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    public BulkheadExecutor(String name, int maxConcurrency, int queueCapacity,
+                            ExecutionConfig.RejectionPolicy rejectionPolicy, boolean preferVirtualThreads) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+
+        ExecutorService virtual = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.virtualExecutor = virtual;
+            this.admission = new Semaphore(maxConcurrency + queueCapacity);
+            this.running = new Semaphore(maxConcurrency);
+            this.pool = null;
+        } else {
+            this.virtualExecutor = null;
+            this.admission = null;
+            this.running = null;
+            AtomicInteger threadCount = new AtomicInteger();
+            // No backlog: a task is handed straight to an idle worker or rejected
+            BlockingQueue<Runnable> backlog = queueCapacity > 0
+                    ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+            this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 30, TimeUnit.SECONDS,
+                    backlog,
+                    r -> {
+                        Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task, rejectionPolicy == ExecutionConfig.RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * Like {@link #execute}, but a saturated executor always rejects the task, whatever
+     * the rejection policy. For callers with their own fallback, whose task must not
+     * end up running on the submitting thread.
+     */
+    public void executeOrReject(Runnable task) {
+        submit(task, false);
+    }
+
+    private void submit(Runnable task, boolean callerRuns) {
+        Runnable tracked = () -> {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        };
+
+        queued.incrementAndGet();
+        if (pool != null) {
+            try {
+                pool.execute(tracked);
+            } catch (RejectedExecutionException e) {
+                reject(tracked, callerRuns);
+            }
+            return;
+        }
+
+        if (!admission.tryAcquire()) {
+            reject(tracked, callerRuns);
+            return;
+        }
+        try {
+            virtualExecutor.execute(() -> {
+                running.acquireUninterruptibly();
+                try {
+                    tracked.run();
+                } finally {
+                    running.release();
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            admission.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Handles a task that found no room. {@code tracked} is already counted as queued,
+     * so a caller-run task is also counted as active and completed.
+     */
+    private void reject(Runnable tracked, boolean callerRuns) {
+        rejected.incrementAndGet();
+        if (callerRuns && !isShutdown()) {
+            tracked.run();
+            return;
+        }
+        queued.decrementAndGet();
+        throw new RejectedExecutionException(name + " is saturated (" + maxConcurrency
+                + " running, " + queueCapacity + " queued)");
+    }
+
+    public boolean isShutdown() {
+        return pool != null ? pool.isShutdown() : virtualExecutor.isShutdown();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        ExecutorService service = pool != null ? pool : virtualExecutor;
+        service.shutdown();
+        try {
+            if (!service.awaitTermination(timeout, unit)) {
+                service.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Statistics
+    public String getName() { return name; }
+    public boolean usesVirtualThreads() { return virtualExecutor != null; }
+    public int getQueueDepth() { return Math.max(0, queued.get()); }
+    public int getActiveCount() { return active.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+    public long getCompletedCount() { return completed.get(); }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,188 +1,118 @@
 package com.aiagent.framework.core;
 
 import android.content.Context;
-import java.io.*;
-import java.util.concurrent.TimeUnit;
-import org.mozilla.javascript.*;
+import java.util.Set;
 
+/**
+ * Runs snippets through the {@link LanguageExecutor} registered for their language.
+ * Nothing is set up at construction: each backend, and the code workspace, is
+ * created the first time it is needed.
+ */
 public class CodeExecutor {
     private Context context;
-    private File workingDirectory;
+    private final ExecutorEnvironment environment;
+    private final LanguageExecutorRegistry executors;
     
     public CodeExecutor(Context context) {
+        this(context, new SandboxLimits());
+    }
+    
+    public CodeExecutor(Context context, SandboxLimits limits) {
         this.context = context;
-        this.workingDirectory = new File(context.getFilesDir(), "code_workspace");
-        if (!workingDirectory.exists()) {
-            workingDirectory.mkdirs();
-        }
+        this.environment = new ExecutorEnvironment(context, limits);
+        this.executors = new LanguageExecutorRegistry(environment);
+        // Simulations only run where the real backend is unavailable
+        executors.register(new JavaScriptExecutor.Provider());
+        executors.register(new JavaExecutor.Provider());
+        executors.register(new SimulatedJavaExecutor.Provider());
+        executors.register(new PythonExecutor.Provider());
+        executors.register(new SimulatedPythonExecutor.Provider());
     }
 
     public CodeExecutionResult execute(String code, String language) {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        AllocationMeter allocationMeter = AllocationMeter.get();
+        long allocatedBefore = allocationMeter.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        
+        CodeExecutionResult result;
         try {
-            switch (language.toLowerCase()) {
-                case "java":
-                    return simulateJavaExecution(code);
-                case "python":
-                    return simulatePythonExecution(code);
-                case "javascript":
-                    return executeJavaScript(code);
-                default:
-                    return new CodeExecutionResult(false, "Unsupported language: " + language);
+            result = executors.execute(language, code, metrics);
+            if (result == null) {
+                result = new CodeExecutionResult(false, "Unsupported language: " + language);
             }
         } catch (Exception e) {
-            return new CodeExecutionResult(false, "Execution error: " + e.getMessage());
+            result = new CodeExecutionResult(false, "Execution error: " + e.getMessage());
         }
+        
+        if (metrics.getCompileNanos() == 0 && metrics.getRunNanos() == 0) {
+            // Simulated languages have no separate compile step
+            metrics.setRunNanos(System.nanoTime() - start);
+        }
+        metrics.setOutputBytes(ExecutionMetrics.utf8Length(result.getOutput()));
+        if (allocatedBefore >= 0 && metrics.getAllocatedBytes() < 0) {
+            // Backends that run code on another thread report its allocation themselves
+            metrics.setAllocatedBytes(allocationMeter.currentThreadAllocatedBytes() - allocatedBefore);
+        }
+        result.setMetrics(metrics);
+        return result;
     }
 
-    private CodeExecutionResult simulateJavaExecution(String code) {
-        try {
-            // Since we can't actually compile and run Java on Android easily,
-            // we'll simulate the execution and provide feedback
-            
-            if (code.contains("System.out.print")) {
-                String output = extractPrintStatements(code);
-                return new CodeExecutionResult(true, "Simulated Java output:\n" + output);
-            }
-            
-            if (code.contains("public static void main")) {
-                return new CodeExecutionResult(true, "Java code structure is valid. Main method found.");
-            }
-            
-            return new CodeExecutionResult(true, "Java code syntax appears valid.");
-            
-        } catch (Exception e) {
-            return new CodeExecutionResult(false, "Java simulation error: " + e.getMessage());
-        }
+    /**
+     * Registers another backend; see {@link LanguageExecutorProvider} for how one is chosen.
+     */
+    public void registerExecutor(LanguageExecutorProvider provider) {
+        executors.register(provider);
     }
 
-    private CodeExecutionResult simulatePythonExecution(String code) {
-        try {
-            // Simulate Python execution
-            if (code.contains("print(")) {
-                String output = extractPythonPrintStatements(code);
-                return new CodeExecutionResult(true, "Simulated Python output:\n" + output);
-            }
-            
-            return new CodeExecutionResult(true, "Python code syntax appears valid.");
-            
-        } catch (Exception e) {
-            return new CodeExecutionResult(false, "Python simulation error: " + e.getMessage());
-        }
+    public Set<String> getSupportedLanguages() {
+        return executors.getLanguages();
     }
 
-    private CodeExecutionResult executeJavaScript(String code) {
-        try {
-            // Use Rhino JavaScript engine for Android
-            org.mozilla.javascript.Context jsContext = org.mozilla.javascript.Context.enter();
-            jsContext.setOptimizationLevel(-1); // Interpretive mode
-            
-            Scriptable scope = jsContext.initStandardObjects();
-            
-            // Capture console output
-            StringBuilder output = new StringBuilder();
-            
-            // Add console object
-            ScriptableObject console = (ScriptableObject) jsContext.newObject(scope);
-            console.defineFunctionProperties(new String[]{"log"}, ConsoleWrapper.class, ScriptableObject.DONTENUM);
-            ScriptableObject.putProperty(scope, "console", console);
-            
-            // Set up the output capture
-            ConsoleWrapper.setOutput(output);
-            
-            try {
-                Object result = jsContext.evaluateString(scope, code, "temp_script.js", 1, null);
-                String resultStr = (result != null) ? result.toString() : "undefined";
-                
-                String fullOutput = output.toString();
-                if (!fullOutput.isEmpty()) {
-                    fullOutput += "\nResult: " + resultStr;
-                } else {
-                    fullOutput = "Result: " + resultStr;
-                }
-                
-                return new CodeExecutionResult(true, fullOutput);
-                
-            } catch (RhinoException e) {
-                return new CodeExecutionResult(false, "JavaScript error: " + e.getMessage());
-            }
-            
-        } catch (Exception e) {
-            return new CodeExecutionResult(false, "JavaScript execution error: " + e.getMessage());
-        } finally {
-            org.mozilla.javascript.Context.exit();
-        }
+    /**
+     * What the backend for {@code language} supports, without starting it.
+     */
+    public Set<ExecutorCapability> getCapabilities(String language) {
+        return executors.getCapabilities(language);
     }
 
-    private String extractPrintStatements(String code) {
-        StringBuilder output = new StringBuilder();
-        String[] lines = code.split("\n");
-        
-        for (String line : lines) {
-            if (line.contains("System.out.print")) {
-                // Extract the string from print statements
-                int start = line.indexOf("(");
-                int end = line.lastIndexOf(")");
-                if (start != -1 && end != -1 && end > start) {
-                    String content = line.substring(start + 1, end);
-                    content = content.replaceAll("\"", "");
-                    output.append(content).append("\n");
-                }
-            }
-        }
-        
-        return output.toString();
+    /**
+     * Uses {@code runtime} for Python instead of the Jython lookup.
+     */
+    public void setPythonRuntime(PythonRuntime runtime) {
+        executors.register(new PythonExecutor.Provider(runtime));
     }
 
-    private String extractPythonPrintStatements(String code) {
-        StringBuilder output = new StringBuilder();
-        String[] lines = code.split("\n");
-        
-        for (String line : lines) {
-            if (line.contains("print(")) {
-                // Extract the string from print statements
-                int start = line.indexOf("(");
-                int end = line.lastIndexOf(")");
-                if (start != -1 && end != -1 && end > start) {
-                    String content = line.substring(start + 1, end);
-                    content = content.replaceAll("\"", "").replaceAll("'", "");
-                    output.append(content).append("\n");
-                }
-            }
-        }
-        
-        return output.toString();
+    public void shutdown() {
+        executors.shutdown();
     }
 
-    // Console wrapper for JavaScript execution
-    public static class ConsoleWrapper {
-        private static StringBuilder output;
-        
-        public static void setOutput(StringBuilder sb) {
-            output = sb;
-        }
-        
-        public static void log(org.mozilla.javascript.Context cx, Scriptable thisObj, Object[] args, Function funObj) {
-            if (output != null && args.length > 0) {
-                for (int i = 0; i < args.length; i++) {
-                    if (i > 0) output.append(" ");
-                    output.append(org.mozilla.javascript.Context.toString(args[i]));
-                }
-                output.append("\n");
-            }
-        }
+    /**
+     * The compiled-script cache of the JavaScript backend, which this starts if
+     * needed; null if JavaScript is served by another backend.
+     */
+    public ScriptCache getScriptCache() {
+        LanguageExecutor javascript = executors.get("javascript");
+        return javascript instanceof JavaScriptExecutor ? ((JavaScriptExecutor) javascript).getScriptCache() : null;
     }
 }
 
-class CodeExecutionResult {
+// CodeExecutionResult.java
+package com.aiagent.framework.core;
+
+import java.util.concurrent.TimeUnit;
+
+public class CodeExecutionResult {
     private boolean success;
     private String output;
     private String error;
     private long executionTime;
+    private ExecutionLimit limitExceeded;
+    private ExecutionMetrics metrics = new ExecutionMetrics();
 
     public CodeExecutionResult(boolean success, String output) {
         this.success = success;
         this.output = output;
-        this.executionTime = System.currentTimeMillis();
     }
 
     public CodeExecutionResult(boolean success, String output, String error) {
@@ -190,9 +120,24 @@ class CodeExecutionResult {
         this.error = error;
     }
 
+    public CodeExecutionResult(boolean success, String output, String error, ExecutionLimit limitExceeded) {
+        this(success, output, error);
+        this.limitExceeded = limitExceeded;
+    }
+
+    void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+        this.executionTime = TimeUnit.NANOSECONDS.toMillis(metrics.getExecutionNanos());
+    }
+
     // Getters
     public boolean isSuccess() { return success; }
     public String getOutput() { return output; }
     public String getError() { return error; }
+    /** Compile plus run time in milliseconds; see {@link #getMetrics()} for detail. */
     public long getExecutionTime() { return executionTime; }
+    public ExecutionMetrics getMetrics() { return metrics; }
+    /** The sandbox limit that stopped the execution, or null if none was hit. */
+    public ExecutionLimit getLimitExceeded() { return limitExceeded; }
+    public boolean isLimitExceeded() { return limitExceeded != null; }
 }
\ No newline at end of file
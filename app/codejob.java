@@ -0,0 +1,18 @@
+// CodeJob.java
+package com.aiagent.framework.core;
+
+/**
+ * One snippet in a batch submitted with {@link AIAgent#executeBatch(java.util.List)}.
+ */
+public class CodeJob {
+    private final String code;
+    private final String language;
+
+    public CodeJob(String code, String language) {
+        this.code = code;
+        this.language = language;
+    }
+
+    public String getCode() { return code; }
+    public String getLanguage() { return language; }
+}
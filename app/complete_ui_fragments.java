@@ -12,6 +12,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.aiagent.framework.MainActivity;
 import com.aiagent.framework.R;
 import com.aiagent.framework.core.AIAgent;
+import com.aiagent.framework.core.ResponseSink;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,16 +69,48 @@ public class ChatFragment extends Fragment {
             // Scroll to bottom
             chatRecyclerView.scrollToPosition(messages.size() - 1);
             
-            // Get AI response
-            aiAgent.processQuery(message).thenAccept(response -> {
-                getActivity().runOnUiThread(() -> {
-                    messages.add(new ChatMessage(response, false));
-                    chatAdapter.notifyItemInserted(messages.size() - 1);
-                    chatRecyclerView.scrollToPosition(messages.size() - 1);
-                });
+            // Add an empty AI message and stream the response into it
+            ChatMessage reply = new ChatMessage("", false);
+            messages.add(reply);
+            int replyPosition = messages.size() - 1;
+            chatAdapter.notifyItemInserted(replyPosition);
+            
+            aiAgent.processQueryStreaming(message, new ResponseSink() {
+                @Override
+                public void onChunk(String chunk) {
+                    runOnUiThread(() -> {
+                        reply.appendMessage(chunk);
+                        chatAdapter.notifyItemChanged(replyPosition, ChatAdapter.PAYLOAD_TEXT);
+                        chatRecyclerView.scrollToPosition(replyPosition);
+                    });
+                }
+
+                @Override
+                public void onComplete(String response) {
+                    runOnUiThread(() -> {
+                        if (!response.equals(reply.getMessage())) {
+                            reply.setMessage(response);
+                            chatAdapter.notifyItemChanged(replyPosition, ChatAdapter.PAYLOAD_TEXT);
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    runOnUiThread(() -> {
+                        reply.setMessage("Error processing query: " + error.getMessage());
+                        chatAdapter.notifyItemChanged(replyPosition, ChatAdapter.PAYLOAD_TEXT);
+                    });
+                }
             });
         }
     }
+
+    private void runOnUiThread(Runnable action) {
+        if (getActivity() != null) {
+            getActivity().runOnUiThread(action);
+        }
+    }
 }
 
 // CodeEditorFragment.java
@@ -196,17 +229,37 @@ public class AnalyticsFragment extends Fragment {
 package com.aiagent.framework.ui;
 
 public class ChatMessage {
-    private String message;
+    private final StringBuilder message;
+    // Built from message when next bound; null after an append
+    private String text;
     private boolean isUser;
     private long timestamp;
 
     public ChatMessage(String message, boolean isUser) {
-        this.message = message;
+        this.message = new StringBuilder(message);
+        this.text = message;
         this.isUser = isUser;
         this.timestamp = System.currentTimeMillis();
     }
 
-    public String getMessage() { return message; }
+    // Chunked replies grow in place; appending is amortized O(chunk), not O(message)
+    public void appendMessage(String chunk) {
+        message.append(chunk);
+        text = null;
+    }
+
+    public void setMessage(String message) {
+        this.message.setLength(0);
+        this.message.append(message);
+        this.text = message;
+    }
+
+    public String getMessage() {
+        if (text == null) {
+            text = message.toString();
+        }
+        return text;
+    }
     public boolean isUser() { return isUser; }
     public long getTimestamp() { return timestamp; }
 }
@@ -224,6 +277,9 @@ import com.aiagent.framework.R;
 import java.util.List;
 
 public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder> {
+    // Partial rebind: only the message text changed
+    public static final String PAYLOAD_TEXT = "text";
+
     private List<ChatMessage> messages;
 
     public ChatAdapter(List<ChatMessage> messages) {
@@ -244,6 +300,15 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         holder.bind(message);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ChatViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_TEXT)) {
+            holder.bindText(messages.get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
     @Override
     public int getItemCount() {
         return messages.size();
@@ -259,6 +324,10 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
             senderLabel = itemView.findViewById(R.id.sender_label);
         }
 
+        public void bindText(ChatMessage message) {
+            messageText.setText(message.getMessage());
+        }
+
         public void bind(ChatMessage message) {
             messageText.setText(message.getMessage());
             senderLabel.setText(message.isUser() ? "You" : "AI Agent");
@@ -0,0 +1,76 @@
+// ConsoleCapture.java
+package com.aiagent.framework.core;
+
+/**
+ * Output captured from one code execution. Each execution owns its own instance,
+ * so concurrent runs never see each other's output.
+ *
+ * The buffer is a fixed-size ring that keeps the most recent {@code capacity}
+ * characters. When older output is overwritten, {@link #toString()} starts with a
+ * marker saying how much was dropped.
+ */
+public class ConsoleCapture {
+    private final char[] ring;
+    private int start;
+    private int length;
+    private long dropped;
+
+    public ConsoleCapture(int capacity) {
+        this.ring = new char[Math.max(1, capacity)];
+    }
+
+    public synchronized void append(CharSequence text) {
+        int count = text.length();
+        int offset = 0;
+        if (count > ring.length) {
+            // Only the tail can survive; skip straight to it
+            offset = count - ring.length;
+            dropped += offset;
+        }
+        for (int i = offset; i < count; i++) {
+            if (length == ring.length) {
+                start = (start + 1) % ring.length;
+                length--;
+                dropped++;
+            }
+            ring[(start + length) % ring.length] = text.charAt(i);
+            length++;
+        }
+    }
+
+    public void appendLine(CharSequence text) {
+        append(text);
+        append("\n");
+    }
+
+    public synchronized boolean isEmpty() {
+        return length == 0 && dropped == 0;
+    }
+
+    public synchronized boolean isTruncated() {
+        return dropped > 0;
+    }
+
+    public synchronized long getDroppedChars() {
+        return dropped;
+    }
+
+    /**
+     * Characters appended over the lifetime of this capture, including dropped ones.
+     */
+    public synchronized long getTotalChars() {
+        return dropped + length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder(length + 48);
+        if (dropped > 0) {
+            text.append("[... ").append(dropped).append(" earlier characters truncated ...]\n");
+        }
+        int firstRun = Math.min(length, ring.length - start);
+        text.append(ring, start, firstRun);
+        text.append(ring, 0, length - firstRun);
+        return text.toString();
+    }
+}
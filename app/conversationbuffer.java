@@ -0,0 +1,391 @@
+// ConversationSettings.java
+package com.aiagent.framework.core;
+
+/**
+ * Budgets for the per-session conversation context kept by {@link MemoryManager}.
+ */
+public class ConversationSettings {
+    private int maxTurns = 32;
+    private int maxChars = 16 * 1024;
+    private int maxTokens = 4096;
+    private int maxSummaryChars = 2048;
+    private int maxSessions = 256;
+    private long sessionIdleMillis = 60 * 60 * 1000L;
+
+    /** Turns kept verbatim per session; older ones are folded into the summary. */
+    public ConversationSettings setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+        return this;
+    }
+
+    /** Characters of queries and responses kept verbatim per session. */
+    public ConversationSettings setMaxChars(int maxChars) {
+        this.maxChars = maxChars;
+        return this;
+    }
+
+    /** Estimated tokens kept verbatim per session; see {@link ConversationBuffer#estimateTokens}. */
+    public ConversationSettings setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+        return this;
+    }
+
+    public ConversationSettings setMaxSummaryChars(int maxSummaryChars) {
+        this.maxSummaryChars = maxSummaryChars;
+        return this;
+    }
+
+    /** Sessions kept on the heap; the least recently active are persisted and dropped. */
+    public ConversationSettings setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+        return this;
+    }
+
+    public ConversationSettings setSessionIdleMillis(long sessionIdleMillis) {
+        this.sessionIdleMillis = sessionIdleMillis;
+        return this;
+    }
+
+    public int getMaxTurns() { return maxTurns; }
+    public int getMaxChars() { return maxChars; }
+    public int getMaxTokens() { return maxTokens; }
+    public int getMaxSummaryChars() { return maxSummaryChars; }
+    public int getMaxSessions() { return maxSessions; }
+    public long getSessionIdleMillis() { return sessionIdleMillis; }
+}
+
+// ConversationSummarizer.java
+package com.aiagent.framework.core;
+
+/**
+ * Folds a turn that no longer fits in a {@link ConversationBuffer} into the running
+ * summary of everything before it.
+ */
+public interface ConversationSummarizer {
+    /**
+     * @param summary the summary so far, empty at first
+     * @return the new summary; it is cut from the front if over the summary budget
+     */
+    String summarize(String summary, ConversationBuffer.Turn evicted);
+
+    /**
+     * Keeps the first sentence of each query and response, one line per turn.
+     */
+    static ConversationSummarizer firstSentences() {
+        return (summary, turn) -> summary + "Q: " + firstSentence(turn.getQuery(), 120)
+                + " A: " + firstSentence(turn.getResponse(), 160) + "\n";
+    }
+
+    static String firstSentence(String text, int maxChars) {
+        String trimmed = text.trim();
+        int end = trimmed.length();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c == '\n' || ((c == '.' || c == '?' || c == '!')
+                    && (i + 1 == trimmed.length() || Character.isWhitespace(trimmed.charAt(i + 1))))) {
+                end = c == '\n' ? i : i + 1;
+                break;
+            }
+        }
+        return end <= maxChars ? trimmed.substring(0, end) : trimmed.substring(0, maxChars) + "...";
+    }
+}
+
+// ConversationBuffer.java
+package com.aiagent.framework.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recent turns of one session in a fixed ring. A new turn pushes out the oldest
+ * ones until the turn, character and token budgets all hold again; each one pushed
+ * out is passed to the {@link ConversationSummarizer}, so the gist of a long
+ * conversation survives in a bounded summary. The newest turn is always kept.
+ */
+public class ConversationBuffer {
+    private final String sessionId;
+    private final ConversationSettings settings;
+    private final ConversationSummarizer summarizer;
+    private final Turn[] ring;
+    private int head;
+    private int size;
+    private long chars;
+    private long tokens;
+    private String summary;
+
+    public ConversationBuffer(String sessionId, ConversationSettings settings, ConversationSummarizer summarizer,
+                              String initialSummary) {
+        this.sessionId = sessionId;
+        this.settings = settings;
+        this.summarizer = summarizer;
+        this.ring = new Turn[Math.max(1, settings.getMaxTurns())];
+        this.summary = initialSummary != null ? initialSummary : "";
+    }
+
+    public synchronized void append(String query, String response, String topic) {
+        Turn turn = new Turn(query, response, topic, System.currentTimeMillis());
+        if (size == ring.length) {
+            evictOldest();
+        }
+        ring[(head + size) % ring.length] = turn;
+        size++;
+        chars += turn.chars;
+        tokens += turn.tokens;
+        while (size > 1 && (chars > settings.getMaxChars() || tokens > settings.getMaxTokens())) {
+            evictOldest();
+        }
+    }
+
+    /** Oldest first. */
+    public synchronized List<Turn> getTurns() {
+        List<Turn> turns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            turns.add(ring[(head + i) % ring.length]);
+        }
+        return turns;
+    }
+
+    public synchronized Turn getLastTurn() {
+        return size == 0 ? null : ring[(head + size - 1) % ring.length];
+    }
+
+    /**
+     * The topic of the most recent turn that had one.
+     */
+    public synchronized String getCurrentTopic() {
+        for (int i = size - 1; i >= 0; i--) {
+            String topic = ring[(head + i) % ring.length].topic;
+            if (topic != null && !topic.isEmpty()) return topic;
+        }
+        return null;
+    }
+
+    public synchronized String getSummary() { return summary; }
+    public synchronized int getTurnCount() { return size; }
+    public synchronized long getCharCount() { return chars; }
+    public synchronized long getTokenCount() { return tokens; }
+    public String getSessionId() { return sessionId; }
+
+    /**
+     * Summary plus the turns still held verbatim, as persisted when the session is
+     * dropped from memory.
+     */
+    public synchronized String describe() {
+        String text = summary;
+        for (int i = 0; i < size; i++) {
+            text = summarizer.summarize(text, ring[(head + i) % ring.length]);
+        }
+        return trimSummary(text);
+    }
+
+    /**
+     * Rough token count: about four characters per token for English text and code.
+     */
+    public static long estimateTokens(CharSequence text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private void evictOldest() {
+        Turn oldest = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        chars -= oldest.chars;
+        tokens -= oldest.tokens;
+        try {
+            summary = trimSummary(summarizer.summarize(summary, oldest));
+        } catch (RuntimeException e) {
+            // A failing summarizer loses the turn, not the conversation
+            e.printStackTrace();
+        }
+    }
+
+    // Drops whole lines from the front, so the most recent context survives
+    private String trimSummary(String text) {
+        int max = settings.getMaxSummaryChars();
+        if (text.length() <= max) return text;
+        int cut = text.length() - max;
+        int nextLine = text.indexOf('\n', cut);
+        return nextLine >= 0 && nextLine + 1 < text.length() ? text.substring(nextLine + 1) : text.substring(cut);
+    }
+
+    public static class Turn {
+        private final String query;
+        private final String response;
+        private final String topic;
+        private final long timestamp;
+        final long chars;
+        final long tokens;
+
+        Turn(String query, String response, String topic, long timestamp) {
+            this.query = query;
+            this.response = response;
+            this.topic = topic;
+            this.timestamp = timestamp;
+            this.chars = query.length() + response.length();
+            this.tokens = estimateTokens(query) + estimateTokens(response);
+        }
+
+        public String getQuery() { return query; }
+        public String getResponse() { return response; }
+        /** What the turn was about, used to resolve references like "it" in follow-ups. */
+        public String getTopic() { return topic; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
+
+// FollowUpResolver.java
+package com.aiagent.framework.core;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes queries that only make sense against the previous turns ("show me an
+ * example", "what about Python?", "why is it slow?") and resolves them with the
+ * conversation's current topic. Anything not recognized is a fresh query, and so
+ * is any query that names its own subject: "why does Java use garbage collection?"
+ * is not a request to elaborate, nor "I think that Kotlin is nice" a reference.
+ */
+public class FollowUpResolver {
+    public enum Kind {
+        /** Say the last response again. */
+        REPEAT,
+        /** Recall what the user last asked. */
+        RECALL_QUESTION,
+        /** Explain the current topic further. */
+        ELABORATE,
+        /** Show code for the current topic. */
+        EXAMPLE,
+        /** A new question whose pronouns or ellipsis refer to the current topic. */
+        REFERENCE
+    }
+
+    private static final Pattern REPEAT = Pattern.compile(
+            "^(?:(?:can you |could you |please )?(?:say|repeat) (?:that|it)(?: again)?|repeat|come again|"
+                    + "what did you (?:say|just say)|say again)\\b");
+    private static final Pattern RECALL_QUESTION = Pattern.compile(
+            "^what (?:did|was) (?:i|my) (?:just )?(?:ask|question|last question)\\b");
+    // ELABORATE and EXAMPLE must be the whole query, give or take filler: "why does
+    // java use garbage collection" and "example of a binary search" stand on their own
+    private static final String FILLER = "(?:,? (?:please|then|again|thanks|about (?:that|it|this)))*[ ,!?.]*$";
+    private static final Pattern ELABORATE = Pattern.compile(
+            "^(?:tell me more|more|go on|continue|elaborate|explain (?:that|it|this|more|further)|why|how so|"
+                    + "why (?:is|does) (?:that|it|this)|what do you mean|more details?|in more detail)" + FILLER);
+    private static final Pattern EXAMPLE = Pattern.compile(
+            "^(?:(?:show|give) me (?:an? )?(?:example|code|sample)s?|(?:an? )?example|code for (?:that|it|this)|"
+                    + "can you show (?:me )?(?:an? )?(?:example|code))(?: (?:of|for) (?:that|it|this))?" + FILLER);
+    // The query names a subject of its own: the speaker ("i think ...") or a clause
+    // introduced by "that" ("i heard that kotlin is nice")
+    private static final Pattern OWN_SUBJECT = Pattern.compile(
+            "^(?:i|i'm|im|we|we're|my|our)\\b|\\b(?:think|know|say|said|believe|hope|guess|heard|sure|feel|agree)s? that\\b");
+    // "what about X", "and X?", "how about X"
+    private static final Pattern SWITCH = Pattern.compile("^(?:what|how) about (.+)$|^and (?:in |for |with )?(.+)$");
+    private static final Pattern PRONOUN = Pattern.compile("\\b(?:it|that|this|them|they|those|these)\\b");
+    private static final Pattern LEADING_QUESTION = Pattern.compile(
+            "^(?:(?:can|could|would) you |please )?(?:(?:what|how|why|when|where|who) (?:is|are|do|does|did|can|to|i)"
+                    + "(?: i| you| we)?|explain|describe|tell me about|write|generate|create|show me|help me with|"
+                    + "define|write me)\\s+(?:an? |the )?");
+    private static final int MAX_FOLLOW_UP_WORDS = 8;
+
+    /**
+     * How {@code query} follows on from {@code conversation}, or null if it stands
+     * on its own or there is no earlier turn to refer to.
+     */
+    public Resolution resolve(String query, ConversationBuffer conversation) {
+        if (conversation == null || conversation.getLastTurn() == null) {
+            return null;
+        }
+        String normalized = ResponseCache.normalize(query);
+        String topic = conversation.getCurrentTopic();
+        if (REPEAT.matcher(normalized).find()) {
+            return new Resolution(Kind.REPEAT, topic, null);
+        }
+        if (RECALL_QUESTION.matcher(normalized).find()) {
+            return new Resolution(Kind.RECALL_QUESTION, topic, null);
+        }
+        if (topic == null || wordCount(normalized) > MAX_FOLLOW_UP_WORDS) {
+            return null;
+        }
+        if (EXAMPLE.matcher(normalized).find()) {
+            return new Resolution(Kind.EXAMPLE, topic, "write an example of " + topic);
+        }
+        if (ELABORATE.matcher(normalized).find()) {
+            return new Resolution(Kind.ELABORATE, topic, "explain " + topic);
+        }
+        Matcher change = SWITCH.matcher(normalized);
+        if (change.find()) {
+            String subject = change.group(1) != null ? change.group(1) : change.group(2);
+            if (!PRONOUN.matcher(subject).find()) {
+                String newTopic = switchTopic(topic, subject);
+                return new Resolution(Kind.REFERENCE, newTopic, rephrase(conversation, topic, newTopic));
+            }
+        }
+        Matcher pronoun = PRONOUN.matcher(normalized);
+        if (!OWN_SUBJECT.matcher(normalized).find() && pronoun.find()) {
+            return new Resolution(Kind.REFERENCE, topic, pronoun.replaceAll(Matcher.quoteReplacement(topic)));
+        }
+        return null;
+    }
+
+    /**
+     * The subject of a standalone query, kept as the topic later follow-ups refer to:
+     * the query without its leading question words.
+     */
+    public static String extractTopic(String query) {
+        String normalized = ResponseCache.normalize(query);
+        String topic = LEADING_QUESTION.matcher(normalized).replaceFirst("").trim();
+        return topic.isEmpty() ? normalized : topic;
+    }
+
+    private static int wordCount(String text) {
+        return text.isEmpty() ? 0 : text.split(" ").length;
+    }
+
+    // A one-word subject replaces the last word of the topic, as in "sort a list in
+    // java" then "what about python"; a longer subject replaces the whole topic
+    private static String switchTopic(String topic, String subject) {
+        int lastSpace = topic.lastIndexOf(' ');
+        if (subject.indexOf(' ') >= 0 || lastSpace < 0) {
+            return subject;
+        }
+        return topic.substring(0, lastSpace + 1) + subject;
+    }
+
+    // The latest query that named the topic, with the topic swapped for the new one
+    private static String rephrase(ConversationBuffer conversation, String topic, String newTopic) {
+        List<ConversationBuffer.Turn> turns = conversation.getTurns();
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            String query = ResponseCache.normalize(turns.get(i).getQuery());
+            if (query.contains(topic)) {
+                return query.replace(topic, newTopic);
+            }
+        }
+        return newTopic;
+    }
+
+    public static class Resolution {
+        private final Kind kind;
+        private final String topic;
+        private final String rewrittenQuery;
+
+        Resolution(Kind kind, String topic, String rewrittenQuery) {
+            this.kind = kind;
+            this.topic = topic;
+            this.rewrittenQuery = rewrittenQuery;
+        }
+
+        public Kind getKind() { return kind; }
+        /** Topic of the conversation after this turn. */
+        public String getTopic() { return topic; }
+        /** The query spelled out without references, or null for REPEAT and RECALL_QUESTION. */
+        public String getRewrittenQuery() { return rewrittenQuery; }
+
+        @Override
+        public String toString() {
+            return kind + (rewrittenQuery != null ? ": " + rewrittenQuery : "");
+        }
+    }
+}
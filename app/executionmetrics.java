@@ -0,0 +1,215 @@
+// ExecutionMetrics.java
+package com.aiagent.framework.core;
+
+/**
+ * Measurements for one code execution. Durations come from {@link System#nanoTime()};
+ * allocated bytes are -1 where the runtime cannot report them (Android).
+ */
+public class ExecutionMetrics {
+    private long queueWaitNanos;
+    private long compileNanos;
+    private long runNanos;
+    private long outputBytes;
+    private long allocatedBytes = -1;
+
+    void setQueueWaitNanos(long queueWaitNanos) { this.queueWaitNanos = queueWaitNanos; }
+    void setCompileNanos(long compileNanos) { this.compileNanos = compileNanos; }
+    void setRunNanos(long runNanos) { this.runNanos = runNanos; }
+    void setOutputBytes(long outputBytes) { this.outputBytes = outputBytes; }
+    void setAllocatedBytes(long allocatedBytes) { this.allocatedBytes = allocatedBytes; }
+
+    /** Time between submission to the code executor and the start of execution. */
+    public long getQueueWaitNanos() { return queueWaitNanos; }
+    /** Parsing and compilation; near zero when the compiled script was cached. */
+    public long getCompileNanos() { return compileNanos; }
+    public long getRunNanos() { return runNanos; }
+    /** UTF-8 size of the output returned to the caller. */
+    public long getOutputBytes() { return outputBytes; }
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    public long getExecutionNanos() {
+        return compileNanos + runNanos;
+    }
+
+    static long utf8Length(CharSequence text) {
+        if (text == null) return 0;
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "queue=" + queueWaitNanos / 1000 + "us compile=" + compileNanos / 1000
+                + "us run=" + runNanos / 1000 + "us output=" + outputBytes + "B allocated="
+                + (allocatedBytes < 0 ? "n/a" : allocatedBytes + "B");
+    }
+}
+
+// AllocationMeter.java
+package com.aiagent.framework.core;
+
+import java.lang.reflect.Method;
+
+/**
+ * Per-thread allocation counter from HotSpot's ThreadMXBean, looked up reflectively
+ * because java.lang.management does not exist on Android.
+ */
+class AllocationMeter {
+    private static volatile AllocationMeter instance;
+
+    private final Object threadBean;
+    private final Method allocatedBytes;
+
+    private AllocationMeter(Object threadBean, Method allocatedBytes) {
+        this.threadBean = threadBean;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    static AllocationMeter get() {
+        AllocationMeter meter = instance;
+        if (meter == null) {
+            meter = create();
+            instance = meter;
+        }
+        return meter;
+    }
+
+    private static AllocationMeter create() {
+        try {
+            Object bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            Class<?> sunBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (sunBean.isInstance(bean)) {
+                Method supported = sunBean.getMethod("isThreadAllocatedMemorySupported");
+                if ((Boolean) supported.invoke(bean)) {
+                    sunBean.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+                    return new AllocationMeter(bean, sunBean.getMethod("getThreadAllocatedBytes", long.class));
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            // Not available on this runtime
+        }
+        return new AllocationMeter(null, null);
+    }
+
+    boolean isSupported() {
+        return allocatedBytes != null;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 when unsupported.
+     */
+    long currentThreadAllocatedBytes() {
+        return allocatedBytes(Thread.currentThread());
+    }
+
+    /**
+     * Bytes allocated so far by {@code thread}, or -1 when unsupported.
+     */
+    long allocatedBytes(Thread thread) {
+        if (allocatedBytes == null) {
+            return -1;
+        }
+        try {
+            return (Long) allocatedBytes.invoke(threadBean, thread.getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
+
+// HeapMeter.java
+package com.aiagent.framework.core;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Live heap as of the last garbage collections, from the collection usage of the
+ * JVM's heap memory pools. Unlike {@code totalMemory() - freeMemory()}, it does not
+ * count garbage that simply has not been collected yet. Looked up reflectively
+ * because java.lang.management does not exist on Android, where
+ * {@code onTrimMemory} reports memory pressure instead.
+ */
+class HeapMeter {
+    private static volatile HeapMeter instance;
+
+    private final List<Object> heapPools;
+    private final Method collectionUsage;
+    private final Method used;
+
+    private HeapMeter(List<Object> heapPools, Method collectionUsage, Method used) {
+        this.heapPools = heapPools;
+        this.collectionUsage = collectionUsage;
+        this.used = used;
+    }
+
+    static HeapMeter get() {
+        HeapMeter meter = instance;
+        if (meter == null) {
+            meter = create();
+            instance = meter;
+        }
+        return meter;
+    }
+
+    private static HeapMeter create() {
+        try {
+            List<?> pools = (List<?>) Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getMemoryPoolMXBeans").invoke(null);
+            Class<?> poolType = Class.forName("java.lang.management.MemoryPoolMXBean");
+            Method type = poolType.getMethod("getType");
+            List<Object> heapPools = new ArrayList<>();
+            for (Object pool : pools) {
+                if ("HEAP".equals(((Enum<?>) type.invoke(pool)).name())) {
+                    heapPools.add(pool);
+                }
+            }
+            if (!heapPools.isEmpty()) {
+                return new HeapMeter(heapPools, poolType.getMethod("getCollectionUsage"),
+                        Class.forName("java.lang.management.MemoryUsage").getMethod("getUsed"));
+            }
+        } catch (Exception | LinkageError e) {
+            // Not available on this runtime
+        }
+        return new HeapMeter(null, null, null);
+    }
+
+    boolean isSupported() {
+        return heapPools != null;
+    }
+
+    /**
+     * Bytes left in the heap pools after their last collection, or -1 when unsupported.
+     */
+    long liveBytesAfterGc() {
+        if (heapPools == null) {
+            return -1;
+        }
+        long live = 0;
+        try {
+            for (Object pool : heapPools) {
+                Object usage = collectionUsage.invoke(pool);
+                if (usage != null) live += (Long) used.invoke(usage);
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        return live;
+    }
+}
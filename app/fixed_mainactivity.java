@@ -53,6 +53,14 @@ public class MainActivity extends AppCompatActivity {
         return aiAgent;
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (aiAgent != null) {
+            aiAgent.onTrimMemory(level);
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -0,0 +1,195 @@
+// IntentClassifier.java
+package com.aiagent.framework.core;
+
+import java.io.*;
+import java.util.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Keyword intent classifier. All intents' keywords are compiled into one
+ * {@link KeywordAutomaton}, so a query is scanned once regardless of how many
+ * intents or keywords are configured.
+ *
+ * Intents come from JSON:
+ * <pre>
+ * {"fallback": "GENERAL",
+ *  "intents": [{"name": "CODE_GENERATION", "keywords": ["code", "write"], "weight": 1.0, "priority": 3},
+ *              {"name": "GREETING", "keywords": ["hello"], "response": "Hi! Ask me about code."}, ...]}
+ * </pre>
+ * Of the intents with a matching keyword, the one with the highest priority wins;
+ * only among equal priorities does the total keyword weight decide, and after that
+ * the earlier intent. The built-in intents have descending priorities, so a query
+ * that matches several of them is classified as the old if/else chain did ("run
+ * and test this code" is CODE_GENERATION). Priority defaults to 0, which leaves
+ * intents that do not set one to their weights.
+ *
+ * An intent's optional {@code response} is what the agent answers for it, with
+ * {@code {query}} replaced by the query; see {@link #getResponseTemplate(String)}.
+ */
+public class IntentClassifier {
+    private final String[] labels;
+    private final float[] weights;
+    private final int[] priorities;
+    private final Map<String, String> responseTemplates = new HashMap<>();
+    private final String fallbackLabel;
+    private final KeywordAutomaton automaton;
+    private final int[] keywordIntents;
+
+    public IntentClassifier(List<IntentRule> rules, String fallbackLabel) {
+        this.labels = new String[rules.size()];
+        this.weights = new float[rules.size()];
+        this.priorities = new int[rules.size()];
+        this.fallbackLabel = fallbackLabel;
+
+        List<String> keywords = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            IntentRule rule = rules.get(i);
+            labels[i] = rule.name;
+            weights[i] = rule.weight;
+            priorities[i] = rule.priority;
+            if (rule.response != null) {
+                responseTemplates.put(rule.name, rule.response);
+            }
+            for (String keyword : rule.keywords) {
+                keywords.add(keyword);
+                owners.add(i);
+            }
+        }
+        this.automaton = new KeywordAutomaton(keywords);
+        this.keywordIntents = new int[owners.size()];
+        for (int i = 0; i < keywordIntents.length; i++) {
+            keywordIntents[i] = owners.get(i);
+        }
+    }
+
+    public static IntentClassifier fromJson(String content) throws Exception {
+        JSONObject json = new JSONObject(content);
+        JSONArray intents = json.getJSONArray("intents");
+        List<IntentRule> rules = new ArrayList<>();
+        for (int i = 0; i < intents.length(); i++) {
+            JSONObject intent = intents.getJSONObject(i);
+            JSONArray words = intent.getJSONArray("keywords");
+            List<String> keywords = new ArrayList<>();
+            for (int j = 0; j < words.length(); j++) {
+                keywords.add(words.getString(j));
+            }
+            rules.add(new IntentRule(intent.getString("name"), keywords,
+                    (float) intent.optDouble("weight", 1.0), intent.optInt("priority", 0),
+                    intent.has("response") ? intent.getString("response") : null));
+        }
+        return new IntentClassifier(rules, json.optString("fallback", "GENERAL"));
+    }
+
+    public static IntentClassifier fromStream(InputStream in) throws Exception {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append('\n');
+            }
+        }
+        return fromJson(content.toString());
+    }
+
+    /**
+     * The built-in intents, used when no configuration is shipped.
+     */
+    public static IntentClassifier withDefaults() {
+        List<IntentRule> rules = new ArrayList<>();
+        rules.add(new IntentRule("CODE_GENERATION", Arrays.asList("code", "write", "program", "function"), 1.0f, 3, null));
+        rules.add(new IntentRule("CODE_EXECUTION", Arrays.asList("execute", "run", "test"), 1.0f, 2, null));
+        rules.add(new IntentRule("EXPLANATION", Arrays.asList("explain", "how", "what", "why"), 1.0f, 1, null));
+        return new IntentClassifier(rules, "GENERAL");
+    }
+
+    public Result classify(String query) {
+        float[] scores = new float[labels.length];
+        automaton.scan(query, (keyword, end) -> {
+            int intent = keywordIntents[keyword];
+            scores[intent] += weights[intent];
+        });
+
+        float total = 0;
+        int best = -1;
+        for (int i = 0; i < scores.length; i++) {
+            total += scores[i];
+            if (scores[i] > 0 && (best < 0 || priorities[i] > priorities[best]
+                    || (priorities[i] == priorities[best] && scores[i] > scores[best]))) {
+                best = i;
+            }
+        }
+        if (total > 0) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] /= total;
+            }
+        }
+        return new Result(labels, scores, best >= 0 ? labels[best] : fallbackLabel);
+    }
+
+    /**
+     * The configured response for intent {@code label}, or null if it has none.
+     */
+    public String getResponseTemplate(String label) {
+        return responseTemplates.get(label);
+    }
+
+    public static class IntentRule {
+        final String name;
+        final List<String> keywords;
+        final float weight;
+        final int priority;
+        final String response;
+
+        public IntentRule(String name, List<String> keywords, float weight) {
+            this(name, keywords, weight, 0, null);
+        }
+
+        public IntentRule(String name, List<String> keywords, float weight, int priority, String response) {
+            this.name = name;
+            this.keywords = keywords;
+            this.weight = weight;
+            this.priority = priority;
+            this.response = response;
+        }
+    }
+
+    public static class Result {
+        private final String[] labels;
+        private final float[] confidences;
+        private final String bestLabel;
+
+        Result(String[] labels, float[] confidences, String bestLabel) {
+            this.labels = labels;
+            this.confidences = confidences;
+            this.bestLabel = bestLabel;
+        }
+
+        public String getBestLabel() {
+            return bestLabel;
+        }
+
+        /**
+         * Share of matched keyword weight that went to {@code label}; 1.0 for the
+         * fallback label when nothing matched.
+         */
+        public float getConfidence(String label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i].equals(label)) return confidences[i];
+            }
+            return label.equals(bestLabel) ? 1.0f : 0.0f;
+        }
+
+        public Map<String, Float> getConfidences() {
+            Map<String, Float> all = new LinkedHashMap<>();
+            for (int i = 0; i < labels.length; i++) {
+                all.put(labels[i], confidences[i]);
+            }
+            if (!all.containsKey(bestLabel)) {
+                all.put(bestLabel, 1.0f);
+            }
+            return all;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+// IntentHandler.java
+package com.aiagent.framework.core;
+
+/**
+ * Answers queries classified as one intent, typically one added through the intent
+ * configuration. Called on an agent worker thread.
+ *
+ * @see AIAgent#registerIntentHandler(String, IntentHandler)
+ */
+public interface IntentHandler {
+    String respond(String query);
+}
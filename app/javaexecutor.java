@@ -0,0 +1,957 @@
+// InMemoryJavaCompiler.java
+package com.aiagent.framework.core;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compiles Java source to class bytes entirely in memory through the JDK's
+ * {@code javax.tools} compiler. Nothing is written to disk.
+ *
+ * {@code javax.tools} is not part of Android, so the API is reached reflectively and
+ * the file manager and file objects are dynamic proxies. {@link #isAvailable()} is
+ * false on Android and on JREs without a compiler.
+ */
+public class InMemoryJavaCompiler {
+    private final Object compiler;
+    private final Class<?> javaCompilerType;
+    private final Class<?> fileManagerType;
+    private final Class<?> fileObjectType;
+    private final Class<?> kindType;
+    private final Class<?> diagnosticListenerType;
+    private final Class<?> diagnosticCollectorType;
+
+    private InMemoryJavaCompiler(Object compiler) throws ClassNotFoundException {
+        this.compiler = compiler;
+        this.javaCompilerType = Class.forName("javax.tools.JavaCompiler");
+        this.fileManagerType = Class.forName("javax.tools.JavaFileManager");
+        this.fileObjectType = Class.forName("javax.tools.JavaFileObject");
+        this.kindType = Class.forName("javax.tools.JavaFileObject$Kind");
+        this.diagnosticListenerType = Class.forName("javax.tools.DiagnosticListener");
+        this.diagnosticCollectorType = Class.forName("javax.tools.DiagnosticCollector");
+    }
+
+    /**
+     * The system compiler, or null where there is none (Android, plain JREs).
+     */
+    public static InMemoryJavaCompiler create() {
+        try {
+            Object compiler = Class.forName("javax.tools.ToolProvider")
+                    .getMethod("getSystemJavaCompiler").invoke(null);
+            return compiler != null ? new InMemoryJavaCompiler(compiler) : null;
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return create() != null;
+    }
+
+    /**
+     * Compiles one source file and returns the bytes of every class it declares,
+     * keyed by binary name.
+     *
+     * @param className binary name of the top-level class, which determines the file name
+     * @throws CompilationException with the compiler's diagnostics if compilation fails
+     */
+    public Map<String, byte[]> compile(String className, String source) throws Exception {
+        Object collector = diagnosticCollectorType.getConstructor().newInstance();
+        Object standardManager = javaCompilerType
+                .getMethod("getStandardFileManager", diagnosticListenerType, Locale.class, java.nio.charset.Charset.class)
+                .invoke(compiler, collector, null, StandardCharsets.UTF_8);
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        Object fileManager = newFileManager(standardManager, classes);
+        Object unit = newSourceFile(className, source);
+
+        List<String> options = Arrays.asList("-proc:none", "-Xlint:none", "-g:source,lines");
+        Object task = javaCompilerType.getMethod("getTask", Writer.class, fileManagerType, diagnosticListenerType,
+                Iterable.class, Iterable.class, Iterable.class)
+                .invoke(compiler, null, fileManager, collector, options, null, Collections.singletonList(unit));
+        boolean success;
+        try {
+            // Through the public interface; the implementation class is not exported
+            success = (Boolean) Class.forName("javax.tools.JavaCompiler$CompilationTask").getMethod("call").invoke(task);
+        } finally {
+            fileManagerType.getMethod("close").invoke(standardManager);
+        }
+        if (!success) {
+            throw new CompilationException(formatDiagnostics(collector));
+        }
+        return classes;
+    }
+
+    private String formatDiagnostics(Object collector) throws Exception {
+        StringBuilder text = new StringBuilder();
+        List<?> diagnostics = (List<?>) diagnosticCollectorType.getMethod("getDiagnostics").invoke(collector);
+        Class<?> diagnosticType = Class.forName("javax.tools.Diagnostic");
+        Method kind = diagnosticType.getMethod("getKind");
+        Method line = diagnosticType.getMethod("getLineNumber");
+        Method message = diagnosticType.getMethod("getMessage", Locale.class);
+        for (Object diagnostic : diagnostics) {
+            if (!"ERROR".equals(String.valueOf(kind.invoke(diagnostic)))) continue;
+            text.append("line ").append(line.invoke(diagnostic)).append(": ")
+                    .append(message.invoke(diagnostic, Locale.ROOT)).append('\n');
+        }
+        return text.toString().trim();
+    }
+
+    private Object newFileManager(Object standardManager, Map<String, byte[]> classes) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("getJavaFileForOutput") && args.length == 4) {
+                return newClassFile((String) args[1], classes);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            return invoke(method, standardManager, args);
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{fileManagerType}, handler);
+    }
+
+    private Object newSourceFile(String className, String source) {
+        String path = "/" + className.replace('.', '/') + ".java";
+        Map<String, FileMethod> methods = new HashMap<>();
+        methods.put("getCharContent", args -> source);
+        methods.put("openInputStream", args -> new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)));
+        return newFileObject(path, "SOURCE", methods);
+    }
+
+    private Object newClassFile(String className, Map<String, byte[]> classes) {
+        String path = "/" + className.replace('.', '/') + ".class";
+        Map<String, FileMethod> methods = new HashMap<>();
+        methods.put("openOutputStream", args -> new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                synchronized (classes) {
+                    classes.put(className, toByteArray());
+                }
+            }
+        });
+        methods.put("openInputStream", args -> {
+            byte[] bytes;
+            synchronized (classes) {
+                bytes = classes.get(className);
+            }
+            if (bytes == null) throw new FileNotFoundException(path);
+            return new ByteArrayInputStream(bytes);
+        });
+        return newFileObject(path, "CLASS", methods);
+    }
+
+    interface FileMethod {
+        Object invoke(Object[] args) throws Exception;
+    }
+
+    /**
+     * A {@code JavaFileObject} proxy that behaves like {@code SimpleJavaFileObject},
+     * which cannot be subclassed here, with {@code methods} overriding it by name.
+     * As there, readers and writers wrap the content methods, and content the file
+     * does not have is unsupported.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object newFileObject(String path, String kindName, Map<String, FileMethod> methods) {
+        Object kind = Enum.valueOf((Class) kindType, kindName);
+        URI uri = URI.create("memory://" + path);
+        InvocationHandler handler = (proxy, method, args) -> {
+            FileMethod override = methods.get(method.getName());
+            if (override != null) {
+                return override.invoke(args);
+            }
+            switch (method.getName()) {
+                case "getKind": return kind;
+                case "toUri": return uri;
+                case "getName": return path;
+                case "isNameCompatible":
+                    return args[1] == kind && path.endsWith("/" + args[0] + (kindName.equals("SOURCE") ? ".java" : ".class"));
+                case "getNestingKind":
+                case "getAccessLevel":
+                    return null;
+                case "getLastModified": return 0L;
+                case "delete": return false;
+                case "openReader":
+                    Object text = invoke(fileObjectType.getMethod("getCharContent", boolean.class), proxy, args);
+                    return new StringReader(text.toString());
+                case "openWriter":
+                    Object out = invoke(fileObjectType.getMethod("openOutputStream"), proxy, null);
+                    return new OutputStreamWriter((OutputStream) out, StandardCharsets.UTF_8);
+                default:
+                    if (method.getDeclaringClass() == Object.class) {
+                        return objectMethod(proxy, method, args);
+                    }
+                    throw new UnsupportedOperationException(method.getName() + " is not supported by in-memory file " + path);
+            }
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{fileObjectType}, handler);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals": return proxy == args[0];
+            case "hashCode": return System.identityHashCode(proxy);
+            default: return proxy.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static class CompilationException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public CompilationException(String diagnostics) {
+            super(diagnostics);
+        }
+    }
+}
+
+// JavaExecutor.java
+package com.aiagent.framework.core;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles and runs Java snippets in this JVM. A snippet is either a complete class
+ * with a {@code main} method or bare statements, which are wrapped in one.
+ *
+ * Each run loads the classes in a fresh class loader whose parent is the platform
+ * loader, so snippets see no app classes, and static state does not carry over
+ * between runs. Of the JDK they see only what {@link SnippetClassPolicy} allows:
+ * compiled classes that refer to anything else are rejected before loading.
+ * Compiled bytes are cached by a hash of the source, so a repeat run skips javac.
+ *
+ * The snippet runs on its own thread while the caller watches the wall-clock and
+ * allocation limits. On a limit the thread is handed to {@link RunawayThreads};
+ * while too many of those are still alive, Java execution is refused. Instruction
+ * counting needs bytecode rewriting, so it is not enforced for Java.
+ */
+public class JavaExecutor implements LanguageExecutor {
+    private static final Pattern PUBLIC_CLASS = Pattern.compile("public\\s+(?:final\\s+|abstract\\s+)*class\\s+(\\w+)");
+    private static final Pattern ANY_CLASS = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final String WRAPPER_CLASS = "Snippet";
+    private static final long POLL_MILLIS = 5;
+    private static final long STOP_GRACE_MILLIS = 200;
+
+    private final InMemoryJavaCompiler compiler;
+    private final SandboxLimits limits;
+    private final int maxCachedSnippets;
+    private final LinkedHashMap<String, CompiledSnippet> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    public JavaExecutor(InMemoryJavaCompiler compiler, SandboxLimits limits, int maxCachedSnippets) {
+        this.compiler = compiler;
+        this.limits = limits;
+        this.maxCachedSnippets = maxCachedSnippets;
+    }
+
+    @Override
+    public CodeExecutionResult execute(String code, ExecutionMetrics metrics) {
+        RunawayThreads runaways = RunawayThreads.get();
+        if (!runaways.hasCapacity(limits.getMaxRunawayThreads())) {
+            return new CodeExecutionResult(false, "Java execution disabled: " + runaways.getCount()
+                    + " earlier snippets could not be stopped and are still running");
+        }
+        long compileStart = System.nanoTime();
+        CompiledSnippet snippet;
+        try {
+            snippet = compile(code);
+        } catch (RejectedSnippetException e) {
+            metrics.setCompileNanos(System.nanoTime() - compileStart);
+            return new CodeExecutionResult(false, "Java snippet rejected: " + e.getMessage(), e.getMessage());
+        } catch (InMemoryJavaCompiler.CompilationException e) {
+            metrics.setCompileNanos(System.nanoTime() - compileStart);
+            return new CodeExecutionResult(false, "Compilation failed:\n" + e.getMessage(), e.getMessage());
+        } catch (Exception e) {
+            metrics.setCompileNanos(System.nanoTime() - compileStart);
+            return new CodeExecutionResult(false, "Java compilation error: " + e);
+        }
+        metrics.setCompileNanos(System.nanoTime() - compileStart);
+
+        ConsoleCapture output = new ConsoleCapture(limits.getRetainedOutputChars());
+        SnippetThread runner;
+        try {
+            runner = new SnippetThread(snippet.load().getMethod("main", String[].class), output,
+                    limits.getMaxOutputChars());
+        } catch (Exception | LinkageError e) {
+            return new CodeExecutionResult(false, "Java error: " + e);
+        }
+
+        long runStart = System.nanoTime();
+        SandboxViolation violation = supervise(runner);
+        metrics.setRunNanos(System.nanoTime() - runStart);
+        if (runner.allocatedBytes >= 0) {
+            metrics.setAllocatedBytes(runner.allocatedBytes);
+        }
+
+        Throwable error = runner.failure;
+        if (violation == null && error instanceof SandboxViolation) {
+            violation = (SandboxViolation) error;
+        }
+        if (violation != null) {
+            return new CodeExecutionResult(false, output + "Execution stopped: " + violation.getMessage(),
+                    violation.getMessage(), violation.getLimit());
+        }
+        if (error != null) {
+            return new CodeExecutionResult(false, output + "Exception in thread \"main\" " + error);
+        }
+        return new CodeExecutionResult(true, output.isEmpty() ? "(no output)" : output.toString());
+    }
+
+    /**
+     * Runs {@code runner} to completion or until a limit is hit; returns the violation, if any.
+     */
+    private SandboxViolation supervise(SnippetThread runner) {
+        AllocationMeter allocationMeter = AllocationMeter.get();
+        long deadline = System.nanoTime() + limits.getMaxWallTimeMillis() * 1_000_000L;
+        runner.start();
+
+        SandboxViolation violation = null;
+        try {
+            while (runner.isAlive()) {
+                runner.join(POLL_MILLIS);
+                long allocated = runner.startAllocated >= 0
+                        ? allocationMeter.allocatedBytes(runner) - runner.startAllocated : -1;
+                if (System.nanoTime() - deadline > 0) {
+                    violation = new SandboxViolation(ExecutionLimit.WALL_CLOCK,
+                            "Exceeded time limit of " + limits.getMaxWallTimeMillis() + " ms");
+                } else if (allocated > limits.getMaxAllocatedBytes()) {
+                    violation = new SandboxViolation(ExecutionLimit.MEMORY,
+                            "Exceeded memory limit of " + limits.getMaxAllocatedBytes() + " bytes");
+                }
+                if (violation != null) {
+                    if (allocated >= 0) runner.allocatedBytes = allocated;
+                    RunawayThreads.get().terminate(runner, STOP_GRACE_MILLIS);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            RunawayThreads.get().terminate(runner, STOP_GRACE_MILLIS);
+            Thread.currentThread().interrupt();
+        }
+        return violation;
+    }
+
+    private CompiledSnippet compile(String code) throws Exception {
+        String key = hash(code);
+        synchronized (cache) {
+            CompiledSnippet cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+
+        String source = code;
+        String className;
+        // Declarations only; "class" inside a string or comment does not count
+        String declarations = blankLiteralsAndComments(code);
+        Matcher publicClass = PUBLIC_CLASS.matcher(declarations);
+        Matcher anyClass = ANY_CLASS.matcher(declarations);
+        if (publicClass.find()) {
+            className = publicClass.group(1);
+        } else if (anyClass.find()) {
+            className = anyClass.group(1);
+        } else {
+            source = wrapStatements(code);
+            className = WRAPPER_CLASS;
+        }
+        Matcher packageName = PACKAGE.matcher(blankLiteralsAndComments(source));
+        if (packageName.find()) {
+            className = packageName.group(1) + "." + className;
+        }
+
+        Map<String, byte[]> classes = compiler.compile(className, source);
+        String violation = SnippetClassPolicy.findViolation(classes);
+        if (violation != null) {
+            throw new RejectedSnippetException(violation + " is not available to snippets");
+        }
+        CompiledSnippet snippet = new CompiledSnippet(findMainClass(classes, className), classes);
+        synchronized (cache) {
+            cache.put(key, snippet);
+            Iterator<String> eldest = cache.keySet().iterator();
+            while (cache.size() > maxCachedSnippets && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return snippet;
+    }
+
+    /**
+     * Puts bare statements into a {@code main} method, keeping leading imports outside.
+     */
+    private static String wrapStatements(String code) {
+        StringBuilder imports = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        boolean header = true;
+        for (String line : code.split("\n", -1)) {
+            String trimmed = line.trim();
+            if (header && (trimmed.startsWith("import ") || trimmed.isEmpty())) {
+                imports.append(line).append('\n');
+            } else {
+                header = false;
+                body.append(line).append('\n');
+            }
+        }
+        // No line break after the header, so compiler line numbers match the snippet
+        return imports + "public class " + WRAPPER_CLASS
+                + " { public static void main(String[] args) throws Exception { " + body + "}}\n";
+    }
+
+    /**
+     * {@code code} with comments and the contents of string, character and text-block
+     * literals replaced by spaces. Line breaks are kept, so offsets still match.
+     */
+    static String blankLiteralsAndComments(String code) {
+        char[] out = code.toCharArray();
+        int n = out.length;
+        int i = 0;
+        while (i < n) {
+            char c = out[i];
+            if (c == '/' && i + 1 < n && out[i + 1] == '/') {
+                while (i < n && out[i] != '\n') out[i++] = ' ';
+            } else if (c == '/' && i + 1 < n && out[i + 1] == '*') {
+                int end = code.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                blank(out, i, end);
+                i = end;
+            } else if (code.startsWith("\"\"\"", i)) {
+                int end = i + 3;
+                while (end < n && !code.startsWith("\"\"\"", end)) {
+                    end += out[end] == '\\' ? 2 : 1;
+                }
+                end = Math.min(n, end);
+                blank(out, i + 3, end);
+                i = Math.min(n, end + 3);
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < n && out[end] != c && out[end] != '\n') {
+                    end += out[end] == '\\' ? 2 : 1;
+                }
+                end = Math.min(n, end);
+                blank(out, i + 1, end);
+                i = end + 1;
+            } else {
+                i++;
+            }
+        }
+        return new String(out);
+    }
+
+    private static void blank(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars[i] != '\n') chars[i] = ' ';
+        }
+    }
+
+    // The class declaring main, preferring the one named after the file
+    private static String findMainClass(Map<String, byte[]> classes, String preferred) {
+        if (hasMain(classes, preferred)) return preferred;
+        for (String name : classes.keySet()) {
+            if (hasMain(classes, name)) return name;
+        }
+        return preferred;
+    }
+
+    private static boolean hasMain(Map<String, byte[]> classes, String className) {
+        if (!classes.containsKey(className)) return false;
+        try {
+            Method main = new SnippetClassLoader(classes).loadClass(className).getMethod("main", String[].class);
+            return Modifier.isStatic(main.getModifiers());
+        } catch (Exception | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs a snippet's {@code main} with its output captured, recording any failure
+     * and the bytes it allocated.
+     */
+    static class SnippetThread extends Thread {
+        private final Method main;
+        private final ConsoleCapture output;
+        private final int maxOutputChars;
+        volatile long startAllocated = -1;
+        volatile long allocatedBytes = -1;
+        volatile Throwable failure;
+
+        SnippetThread(Method main, ConsoleCapture output, int maxOutputChars) {
+            super("java-snippet");
+            this.main = main;
+            this.output = output;
+            this.maxOutputChars = maxOutputChars;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            AllocationMeter allocationMeter = AllocationMeter.get();
+            startAllocated = allocationMeter.currentThreadAllocatedBytes();
+            OutputRouter.capture(output, maxOutputChars);
+            try {
+                // main may be in a class that is not public
+                main.setAccessible(true);
+                main.invoke(null, (Object) new String[0]);
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                failure = e.getCause();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                OutputRouter.release();
+                if (startAllocated >= 0) {
+                    allocatedBytes = allocationMeter.currentThreadAllocatedBytes() - startAllocated;
+                }
+            }
+        }
+    }
+
+    static class CompiledSnippet {
+        final String mainClass;
+        final Map<String, byte[]> classes;
+
+        CompiledSnippet(String mainClass, Map<String, byte[]> classes) {
+            this.mainClass = mainClass;
+            this.classes = classes;
+        }
+
+        /** Loads the main class in a new isolated loader. */
+        Class<?> load() throws ClassNotFoundException {
+            return newLoader().loadClass(mainClass);
+        }
+
+        ClassLoader newLoader() {
+            return new SnippetClassLoader(classes);
+        }
+    }
+
+    static class SnippetClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        SnippetClassLoader(Map<String, byte[]> classes) {
+            // The platform loader: JDK classes only, nothing from the app's class path
+            super(ClassLoader.getSystemClassLoader().getParent());
+            this.classes = classes;
+        }
+
+        // Names the constant-pool check could not see, such as those built at run
+        // time, fail here
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!classes.containsKey(name) && !SnippetClassPolicy.canLoad(name)) {
+                throw new ClassNotFoundException(name + " is not available to snippets");
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /** A snippet that compiled but uses classes outside {@link SnippetClassPolicy}. */
+    static class RejectedSnippetException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        RejectedSnippetException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Available where the JDK compiler is (desktop JVMs and unit tests), never on
+     * Android, where the simulation takes over.
+     */
+    public static class Provider implements LanguageExecutorProvider {
+        @Override
+        public String getLanguage() {
+            return "java";
+        }
+
+        @Override
+        public Set<ExecutorCapability> getCapabilities() {
+            return EnumSet.of(ExecutorCapability.TIMEOUTS, ExecutorCapability.POOLING);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return InMemoryJavaCompiler.isAvailable();
+        }
+
+        @Override
+        public LanguageExecutor create(ExecutorEnvironment environment) {
+            InMemoryJavaCompiler compiler = InMemoryJavaCompiler.create();
+            if (compiler == null) {
+                throw new IllegalStateException("No Java compiler in this runtime");
+            }
+            return new JavaExecutor(compiler, environment.getSandboxLimits(), 64);
+        }
+    }
+
+    /**
+     * {@code System.out} and {@code System.err} are process-wide, so they are replaced
+     * once with streams that send each snippet thread's output (and that of threads it
+     * starts) to its own capture. Other threads still write to the original streams.
+     */
+    static class OutputRouter extends OutputStream {
+        private static final InheritableThreadLocal<OutputRouter> CURRENT = new InheritableThreadLocal<>();
+        private static boolean installed;
+
+        private final ConsoleCapture capture;
+        private final int maxOutputChars;
+
+        private OutputRouter(ConsoleCapture capture, int maxOutputChars) {
+            this.capture = capture;
+            this.maxOutputChars = maxOutputChars;
+        }
+
+        static void capture(ConsoleCapture capture, int maxOutputChars) {
+            install();
+            CURRENT.set(new OutputRouter(capture, maxOutputChars));
+        }
+
+        static void release() {
+            CURRENT.remove();
+        }
+
+        private static synchronized void install() {
+            if (installed) return;
+            installed = true;
+            System.setOut(new PrintStream(new Routed(System.out), true));
+            System.setErr(new PrintStream(new Routed(System.err), true));
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            capture.append(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            if (capture.getTotalChars() > maxOutputChars) {
+                throw new SandboxViolation(ExecutionLimit.OUTPUT,
+                        "Exceeded output limit of " + maxOutputChars + " characters");
+            }
+        }
+
+        static class Routed extends OutputStream {
+            private final PrintStream fallback;
+
+            Routed(PrintStream fallback) {
+                this.fallback = fallback;
+            }
+
+            @Override
+            public void write(int b) {
+                OutputRouter router = CURRENT.get();
+                if (router != null) router.write(b);
+                else fallback.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                OutputRouter router = CURRENT.get();
+                if (router != null) router.write(bytes, offset, length);
+                else fallback.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                if (CURRENT.get() == null) fallback.flush();
+            }
+        }
+    }
+}
+
+// SnippetClassPolicy.java
+package com.aiagent.framework.core;
+
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The JDK classes and members a Java snippet may use. Snippets get the language
+ * runtime, collections, streams, text, math and time, and console output; files,
+ * sockets, processes, threads, class loaders and reflection are out of reach.
+ *
+ * Checked twice. {@link #findViolation(Map)} reads the constant pool of every compiled class
+ * and rejects a snippet that refers to anything outside the allowlist, before any
+ * of it is loaded. The snippet's class loader then resolves only allowed packages,
+ * so a name the check could not see fails to link.
+ */
+public class SnippetClassPolicy {
+    private static final Set<String> PACKAGES = new HashSet<>(Arrays.asList(
+            "java/lang", "java/util", "java/util/function", "java/util/stream", "java/util/regex",
+            "java/math", "java/text", "java/time", "java/time/format", "java/time/temporal",
+            "java/time/chrono", "java/util/concurrent/atomic"));
+
+    // In otherwise allowed packages
+    private static final Set<String> DENIED_CLASSES = new HashSet<>(Arrays.asList(
+            "java/lang/ClassLoader", "java/lang/Process", "java/lang/ProcessBuilder",
+            "java/lang/ProcessHandle", "java/lang/ThreadGroup", "java/lang/SecurityManager",
+            "java/lang/Module", "java/lang/ModuleLayer", "java/lang/StackWalker",
+            "java/lang/InheritableThreadLocal", "java/lang/Compiler",
+            "java/util/ServiceLoader", "java/util/Timer", "java/util/TimerTask"));
+
+    // Classes outside the allowed packages that are safe to use
+    private static final Set<String> EXTRA_CLASSES = new HashSet<>(Arrays.asList(
+            "java/io/PrintStream", "java/io/PrintWriter", "java/io/IOException",
+            "java/io/UncheckedIOException", "java/io/Serializable", "java/io/Closeable",
+            "java/io/Reader", "java/io/Writer", "java/io/StringReader", "java/io/StringWriter",
+            "java/io/BufferedReader", "java/io/InputStream", "java/io/OutputStream",
+            "java/io/InputStreamReader", "java/io/ByteArrayInputStream", "java/io/ByteArrayOutputStream",
+            "java/util/concurrent/ConcurrentHashMap", "java/util/concurrent/ConcurrentMap",
+            "java/util/concurrent/ConcurrentLinkedQueue", "java/util/concurrent/ConcurrentLinkedDeque",
+            "java/util/concurrent/ConcurrentSkipListMap", "java/util/concurrent/ConcurrentSkipListSet",
+            "java/util/concurrent/CopyOnWriteArrayList", "java/util/concurrent/ThreadLocalRandom",
+            "java/util/concurrent/TimeUnit"));
+
+    // Classes only some of whose members are allowed; the rest reach the host
+    private static final Map<String, Set<String>> PARTIAL_CLASSES = new HashMap<>();
+
+    static {
+        PARTIAL_CLASSES.put("java/lang/System", new HashSet<>(Arrays.asList(
+                "out", "err", "in", "currentTimeMillis", "nanoTime", "arraycopy", "lineSeparator",
+                "identityHashCode")));
+        PARTIAL_CLASSES.put("java/lang/Runtime", new HashSet<>(Arrays.asList(
+                "getRuntime", "availableProcessors", "freeMemory", "totalMemory", "maxMemory")));
+        PARTIAL_CLASSES.put("java/lang/Thread", new HashSet<>(Arrays.asList(
+                "sleep", "currentThread", "onSpinWait", "yield", "interrupted", "isInterrupted",
+                "getName")));
+        // Class.forName and the reflective getters are not here
+        PARTIAL_CLASSES.put("java/lang/Class", new HashSet<>(Arrays.asList(
+                "getName", "getSimpleName", "getTypeName", "getCanonicalName", "toString", "isInstance",
+                "cast", "isArray", "isPrimitive", "isInterface", "isEnum", "desiredAssertionStatus",
+                "hashCode", "equals")));
+    }
+
+    // Print streams also open files by name; only the constructors wrapping a stream
+    // or writer are allowed
+    private static final Set<String> STREAM_WRAPPERS = new HashSet<>(Arrays.asList(
+            "java/io/PrintStream", "java/io/PrintWriter"));
+
+    // java.util types whose constructors open or write host files when given one of
+    // these parameter types; their other constructors format into memory or read text
+    private static final Map<String, Set<String>> FILE_PARAMETERS = new HashMap<>();
+
+    static {
+        // Formatter(String) takes a file name
+        FILE_PARAMETERS.put("java/util/Formatter", new HashSet<>(Arrays.asList(
+                "Ljava/lang/String;", "Ljava/io/File;", "Ljava/io/OutputStream;")));
+        // Scanner(String) scans the string itself
+        FILE_PARAMETERS.put("java/util/Scanner", new HashSet<>(Arrays.asList(
+                "Ljava/io/File;", "Ljava/nio/file/Path;", "Ljava/nio/channels/ReadableByteChannel;")));
+    }
+
+    // Targets of the invokedynamic call sites javac emits for lambdas, string
+    // concatenation, records and pattern switches
+    private static final Set<String> BOOTSTRAP_CLASSES = new HashSet<>(Arrays.asList(
+            "java/lang/invoke/LambdaMetafactory", "java/lang/invoke/StringConcatFactory",
+            "java/lang/runtime/ObjectMethods", "java/lang/runtime/SwitchBootstraps"));
+
+    // Named in descriptors and inner-class tables of that generated code, never called
+    private static final Set<String> LINKAGE_CLASSES = new HashSet<>(Arrays.asList(
+            "java/lang/invoke/MethodHandles", "java/lang/invoke/MethodHandles$Lookup",
+            "java/lang/invoke/MethodHandle", "java/lang/invoke/MethodType", "java/lang/invoke/CallSite",
+            "java/lang/invoke/TypeDescriptor", "java/lang/invoke/TypeDescriptor$OfField",
+            "java/lang/invoke/TypeDescriptor$OfMethod"));
+
+    // Members that hand work to threads the executor does not supervise
+    private static final Set<String> DENIED_MEMBERS = new HashSet<>(Arrays.asList(
+            "parallel", "parallelStream", "parallelSort", "parallelPrefix", "parallelSetAll"));
+
+    // ConcurrentHashMap's bulk operations take a parallelism threshold as their first
+    // parameter and run on the common fork-join pool; the plain Map methods do not
+    private static final String PARALLEL_MAP = "java/util/concurrent/ConcurrentHashMap";
+
+    private SnippetClassPolicy() {
+    }
+
+    /**
+     * Whether the snippet class loader may resolve {@code binaryName}.
+     */
+    public static boolean canLoad(String binaryName) {
+        String name = binaryName.replace('.', '/');
+        return isClassAllowed(name) || BOOTSTRAP_CLASSES.contains(name) || LINKAGE_CLASSES.contains(name);
+    }
+
+    /**
+     * Checks every class the snippet compiled to.
+     *
+     * @return the first class or member outside the policy, or null if there is none
+     */
+    public static String findViolation(Map<String, byte[]> classes) {
+        Set<String> own = new HashSet<>();
+        for (String name : classes.keySet()) {
+            own.add(name.replace('.', '/'));
+        }
+        for (byte[] bytes : classes.values()) {
+            try {
+                String violation = check(bytes, own);
+                if (violation != null) return violation;
+            } catch (IOException | RuntimeException e) {
+                return "an unreadable class file";
+            }
+        }
+        return null;
+    }
+
+    // The first reference outside the policy, or null
+    private static String check(byte[] bytes, Set<String> own) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) throw new IOException("not a class file");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        int[] tags = new int[count];
+        int[] first = new int[count];
+        int[] second = new int[count];
+        String[] utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case 1: utf8[i] = in.readUTF(); break;
+                case 3: case 4: in.readInt(); break;
+                case 5: case 6: in.readLong(); i++; break;
+                case 7: case 8: case 16: case 19: case 20: first[i] = in.readUnsignedShort(); break;
+                case 15: in.readUnsignedByte(); first[i] = in.readUnsignedShort(); break;
+                case 9: case 10: case 11: case 12: case 17: case 18:
+                    first[i] = in.readUnsignedShort();
+                    second[i] = in.readUnsignedShort();
+                    break;
+                default: throw new IOException("constant pool tag " + tag);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            if (tags[i] == 7) {
+                String name = elementType(utf8[first[i]]);
+                if (name != null && !own.contains(name) && !isClassAllowed(name)
+                        && !BOOTSTRAP_CLASSES.contains(name) && !LINKAGE_CLASSES.contains(name)) {
+                    return name.replace('/', '.');
+                }
+            } else if (tags[i] == 9 || tags[i] == 10 || tags[i] == 11) {
+                String owner = elementType(utf8[first[first[i]]]);
+                String member = utf8[first[second[i]]];
+                String descriptor = utf8[second[second[i]]];
+                if (owner != null && !own.contains(owner) && !isMemberAllowed(owner, member, descriptor)) {
+                    return owner.replace('/', '.') + "." + member;
+                }
+            }
+        }
+
+        in.readUnsignedShort();
+        String className = utf8[first[in.readUnsignedShort()]];
+        in.readUnsignedShort();
+        in.skipBytes(2 * in.readUnsignedShort());
+        skipMembers(in);
+        int methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            in.readUnsignedShort();
+            String name = utf8[in.readUnsignedShort()];
+            String descriptor = utf8[in.readUnsignedShort()];
+            // A finalizer runs later on the JVM's finalizer thread, outside any limit
+            if (name.equals("finalize") && descriptor.equals("()V")) {
+                return className.replace('/', '.') + ".finalize";
+            }
+            skipAttributes(in);
+        }
+        return null;
+    }
+
+    // Skips the field table
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.readUnsignedShort();
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    private static boolean isClassAllowed(String name) {
+        if (EXTRA_CLASSES.contains(name) || PARTIAL_CLASSES.containsKey(name)) return true;
+        int slash = name.lastIndexOf('/');
+        return slash > 0 && PACKAGES.contains(name.substring(0, slash)) && !DENIED_CLASSES.contains(name);
+    }
+
+    static boolean isMemberAllowed(String owner, String member, String descriptor) {
+        if (BOOTSTRAP_CLASSES.contains(owner)) return true;
+        if (!isClassAllowed(owner) || DENIED_MEMBERS.contains(member)) return false;
+        if (owner.equals(PARALLEL_MAP) && descriptor.startsWith("(J")) return false;
+        if (STREAM_WRAPPERS.contains(owner) && member.equals("<init>")) {
+            return descriptor.startsWith("(Ljava/io/OutputStream;") || descriptor.startsWith("(Ljava/io/Writer;");
+        }
+        Set<String> fileParameters = FILE_PARAMETERS.get(owner);
+        if (fileParameters != null && member.equals("<init>")) {
+            for (String parameter : parameterTypes(descriptor)) {
+                if (fileParameters.contains(parameter)) return false;
+            }
+        }
+        Set<String> members = PARTIAL_CLASSES.get(owner);
+        return members == null || members.contains(member);
+    }
+
+    // Parameter type descriptors of a method descriptor, array dimensions dropped
+    private static List<String> parameterTypes(String descriptor) {
+        List<String> types = new ArrayList<>();
+        int i = 1;
+        while (i < descriptor.length() && descriptor.charAt(i) != ')') {
+            while (descriptor.charAt(i) == '[') i++;
+            int end = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            types.add(descriptor.substring(i, end));
+            i = end;
+        }
+        return types;
+    }
+
+    // Class name of a constant-pool class entry, unwrapping arrays; null for primitive arrays
+    private static String elementType(String name) {
+        if (!name.startsWith("[")) return name;
+        int start = name.lastIndexOf('[') + 1;
+        return name.charAt(start) == 'L' ? name.substring(start + 1, name.length() - 1) : null;
+    }
+}
@@ -0,0 +1,262 @@
+// JavaScriptExecutor.java
+package com.aiagent.framework.core;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.mozilla.javascript.*;
+
+/**
+ * Runs JavaScript with Rhino under the sandbox limits. Contexts are pooled and
+ * compiled scripts are cached, so only the first run pays for setup.
+ *
+ * Each script runs on its own supervised thread. The instruction observer stops
+ * scripts from inside, but native work such as regex backtracking never reaches
+ * it, so the wall-clock limit is also enforced from outside: at the deadline the
+ * thread is stopped, or abandoned with its context if it cannot be.
+ */
+public class JavaScriptExecutor implements LanguageExecutor {
+    private static final long STOP_GRACE_MILLIS = 200;
+
+    private final SandboxContextFactory sandbox;
+    private final RhinoContextPool rhinoPool;
+    private final ScriptCache scriptCache;
+
+    public JavaScriptExecutor(SandboxLimits limits) {
+        this.sandbox = new SandboxContextFactory(limits);
+        this.rhinoPool = new RhinoContextPool(sandbox);
+        this.scriptCache = new ScriptCache(4 * 1024 * 1024, 10);
+    }
+
+    @Override
+    public CodeExecutionResult execute(String code, ExecutionMetrics metrics) {
+        SandboxLimits limits = sandbox.getLimits();
+        RunawayThreads runaways = RunawayThreads.get();
+        if (!runaways.hasCapacity(limits.getMaxRunawayThreads())) {
+            return new CodeExecutionResult(false, "JavaScript execution disabled: " + runaways.getCount()
+                    + " earlier scripts could not be stopped and are still running");
+        }
+
+        ConsoleCapture output = new ConsoleCapture(limits.getRetainedOutputChars());
+        ScriptThread runner = new ScriptThread(code, output);
+        long start = System.nanoTime();
+        boolean ended = supervise(runner);
+        ExecutionMetrics measured = runner.metrics;
+        if (ended) {
+            metrics.setCompileNanos(measured.getCompileNanos());
+            metrics.setRunNanos(measured.getRunNanos());
+        } else {
+            long compileNanos = runner.compileNanos;
+            metrics.setCompileNanos(compileNanos);
+            metrics.setRunNanos(System.nanoTime() - start - compileNanos);
+        }
+        if (runner.allocatedBytes >= 0) {
+            metrics.setAllocatedBytes(runner.allocatedBytes);
+        }
+        if (ended) {
+            CodeExecutionResult result = runner.result;
+            return result != null ? result
+                    : new CodeExecutionResult(false, "JavaScript execution error: " + runner.failure);
+        }
+        String message = "Exceeded time limit of " + limits.getMaxWallTimeMillis() + " ms";
+        return new CodeExecutionResult(false, output + "Execution stopped: " + message,
+                message, ExecutionLimit.WALL_CLOCK);
+    }
+
+    /**
+     * Runs {@code runner} until it ends or the wall-clock limit passes, then stops it.
+     *
+     * @return true if the script ended by itself, including when the instruction
+     *         observer stopped it
+     */
+    private boolean supervise(ScriptThread runner) {
+        runner.start();
+        try {
+            runner.join(sandbox.getLimits().getMaxWallTimeMillis());
+            if (!runner.isAlive()) {
+                return true;
+            }
+            // The observer throws at the deadline by itself if the script reaches it
+            runner.join(STOP_GRACE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!runner.isAlive()) {
+            return true;
+        }
+        runner.stopping = true;
+        RunawayThreads.get().terminate(runner, STOP_GRACE_MILLIS);
+        return false;
+    }
+
+    // Compiles and runs on the runner thread, which has entered a pooled context
+    private CodeExecutionResult run(org.mozilla.javascript.Context jsContext, ScriptThread runner) {
+        String code = runner.code;
+        ConsoleCapture output = runner.output;
+        ExecutionMetrics metrics = runner.metrics;
+        try {
+            // Only a child scope is built per run; standard objects are shared and sealed
+            Scriptable scope = rhinoPool.newExecutionScope(jsContext);
+
+            // Console output is captured per execution, so concurrent runs stay separate
+            SandboxLimits limits = sandbox.getLimits();
+            ScriptableObject console = (ScriptableObject) jsContext.newObject(scope);
+            ConsoleLog log = new ConsoleLog(output, limits.getMaxOutputChars());
+            ScriptRuntime.setFunctionProtoAndParent(log, scope);
+            console.defineProperty("log", log, ScriptableObject.DONTENUM);
+            ScriptableObject.putProperty(scope, "console", console);
+
+            long compileStart = System.nanoTime();
+            long runStart = 0;
+            try {
+                // Re-runs of the same snippet reuse the compiled script
+                Script script = scriptCache.getOrCompile(jsContext, code, "temp_script.js");
+                runStart = System.nanoTime();
+                metrics.setCompileNanos(runStart - compileStart);
+                runner.compileNanos = runStart - compileStart;
+                sandbox.begin(jsContext);
+                Object result = script.exec(jsContext, scope);
+                metrics.setRunNanos(System.nanoTime() - runStart);
+                String resultStr = (result != null) ? result.toString() : "undefined";
+
+                String fullOutput = output.toString();
+                if (!fullOutput.isEmpty()) {
+                    fullOutput += "\nResult: " + resultStr;
+                } else {
+                    fullOutput = "Result: " + resultStr;
+                }
+
+                return new CodeExecutionResult(true, fullOutput);
+
+            } catch (RhinoException e) {
+                recordFailureTiming(metrics, compileStart, runStart);
+                return new CodeExecutionResult(false, "JavaScript error: " + e.getMessage());
+            } catch (SandboxViolation e) {
+                recordFailureTiming(metrics, compileStart, runStart);
+                // Keep what the script printed before it was stopped; it ends with a newline
+                return new CodeExecutionResult(false, output + "Execution stopped: " + e.getMessage(),
+                        e.getMessage(), e.getLimit());
+            } finally {
+                sandbox.end(jsContext);
+            }
+
+        } catch (Exception e) {
+            return new CodeExecutionResult(false, "JavaScript execution error: " + e.getMessage());
+        }
+    }
+
+    public ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    // A script fails either while compiling (runStart still 0) or while running
+    private static void recordFailureTiming(ExecutionMetrics metrics, long compileStart, long runStart) {
+        long now = System.nanoTime();
+        if (runStart == 0) {
+            metrics.setCompileNanos(now - compileStart);
+        } else {
+            metrics.setRunNanos(now - runStart);
+        }
+    }
+
+    /**
+     * Runs one script in a pooled context. A context the supervisor had to stop the
+     * script in is dropped rather than pooled, as the stop may have left it half-updated.
+     */
+    class ScriptThread extends Thread {
+        private final String code;
+        private final ConsoleCapture output;
+        final ExecutionMetrics metrics = new ExecutionMetrics();
+        volatile long compileNanos;
+        volatile long allocatedBytes = -1;
+        volatile CodeExecutionResult result;
+        volatile Throwable failure;
+        volatile boolean stopping;
+
+        ScriptThread(String code, ConsoleCapture output) {
+            super("javascript-snippet");
+            this.code = code;
+            this.output = output;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            AllocationMeter allocationMeter = AllocationMeter.get();
+            long startAllocated = allocationMeter.currentThreadAllocatedBytes();
+            try {
+                org.mozilla.javascript.Context jsContext = rhinoPool.enter();
+                try {
+                    result = JavaScriptExecutor.this.run(jsContext, this);
+                } finally {
+                    if (stopping) {
+                        rhinoPool.abandon();
+                    } else {
+                        rhinoPool.exit();
+                    }
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                if (startAllocated >= 0) {
+                    allocatedBytes = allocationMeter.currentThreadAllocatedBytes() - startAllocated;
+                }
+            }
+        }
+    }
+
+    // console.log for JavaScript execution, bound to one execution's capture
+    static class ConsoleLog extends BaseFunction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConsoleCapture output;
+        private final int maxOutputChars;
+
+        ConsoleLog(ConsoleCapture output, int maxOutputChars) {
+            this.output = output;
+            this.maxOutputChars = maxOutputChars;
+        }
+
+        @Override
+        public Object call(org.mozilla.javascript.Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+            if (args.length > 0) {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < args.length; i++) {
+                    if (i > 0) line.append(" ");
+                    line.append(org.mozilla.javascript.Context.toString(args[i]));
+                }
+                output.appendLine(line);
+                if (output.getTotalChars() > maxOutputChars) {
+                    throw new SandboxViolation(ExecutionLimit.OUTPUT,
+                            "Exceeded output limit of " + maxOutputChars + " characters");
+                }
+            }
+            return Undefined.instance;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "log";
+        }
+    }
+
+    /**
+     * Rhino ships with the app, so this backend is always available. Building the
+     * shared standard objects is deferred until the first script.
+     */
+    public static class Provider implements LanguageExecutorProvider {
+        @Override
+        public String getLanguage() {
+            return "javascript";
+        }
+
+        @Override
+        public Set<ExecutorCapability> getCapabilities() {
+            return EnumSet.of(ExecutorCapability.TIMEOUTS, ExecutorCapability.POOLING);
+        }
+
+        @Override
+        public LanguageExecutor create(ExecutorEnvironment environment) {
+            return new JavaScriptExecutor(environment.getSandboxLimits());
+        }
+    }
+}
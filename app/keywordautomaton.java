@@ -0,0 +1,162 @@
+// KeywordAutomaton.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+
+/**
+ * Case-insensitive Aho-Corasick automaton compiled into a dense transition table.
+ * Matches every keyword in one left-to-right pass, one table lookup per character,
+ * without lowercasing or splitting the input first.
+ */
+public class KeywordAutomaton {
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final int[] patternLengths;
+    private final char[] alphabet;
+    private final int[] asciiClasses;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    public interface MatchListener {
+        /**
+         * @param patternId index of the keyword in the list the automaton was built from
+         * @param end index just past the last matched character
+         */
+        void onMatch(int patternId, int end);
+    }
+
+    public KeywordAutomaton(List<String> patterns) {
+        this.patternLengths = new int[patterns.size()];
+
+        // Alphabet: every distinct (lowercased) character used by a pattern
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                chars.add(Character.toLowerCase(pattern.charAt(i)));
+            }
+        }
+        this.alphabet = new char[chars.size()];
+        this.asciiClasses = new int[128];
+        Arrays.fill(asciiClasses, -1);
+        int index = 0;
+        for (char c : chars) {
+            alphabet[index] = c;
+            if (c < 128) asciiClasses[c] = index;
+            index++;
+        }
+        this.alphabetSize = Math.max(1, alphabet.length);
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> matches = new ArrayList<>();
+        trie.add(newRow());
+        matches.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            patternLengths[id] = pattern.length();
+            if (pattern.isEmpty()) continue;
+
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int symbol = classOf(Character.toLowerCase(pattern.charAt(i)));
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newRow());
+                    matches.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            matches.get(state).add(id);
+        }
+
+        // Failure links, folded into a full DFA breadth-first
+        int stateCount = trie.size();
+        this.transitions = new int[stateCount * alphabetSize];
+        this.outputs = new int[stateCount][];
+        int[] failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int next = trie.get(0)[symbol];
+            if (next < 0) {
+                transitions[symbol] = 0;
+            } else {
+                transitions[symbol] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = toArray(matches.get(0));
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> stateMatches = matches.get(state);
+            stateMatches.addAll(matches.get(failure[state]));
+            outputs[state] = toArray(stateMatches);
+
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = trie.get(state)[symbol];
+                int fallback = transitions[failure[state] * alphabetSize + symbol];
+                if (next < 0) {
+                    transitions[state * alphabetSize + symbol] = fallback;
+                } else {
+                    transitions[state * alphabetSize + symbol] = next;
+                    failure[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    public int initialState() {
+        return 0;
+    }
+
+    /**
+     * Advances by one character. Characters outside every pattern reset to the root.
+     */
+    public int step(int state, char c) {
+        int symbol = classOf(Character.toLowerCase(c));
+        return symbol < 0 ? 0 : transitions[state * alphabetSize + symbol];
+    }
+
+    /**
+     * Ids of the patterns that end in {@code state}; shared, do not modify.
+     */
+    public int[] matchesAt(int state) {
+        return outputs[state];
+    }
+
+    public void scan(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int id : outputs[state]) {
+                listener.onMatch(id, i + 1);
+            }
+        }
+    }
+
+    public int patternLength(int patternId) {
+        return patternLengths[patternId];
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return asciiClasses[c];
+        int found = Arrays.binarySearch(alphabet, c);
+        return found >= 0 ? found : -1;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        if (values.isEmpty()) return NO_MATCHES;
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) array[i] = values.get(i);
+        return array;
+    }
+}
@@ -0,0 +1,168 @@
+// KnowledgeIndex.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokenized inverted index over stored knowledge queries.
+ * Each term maps to a posting list of entry ids; candidates are ranked with BM25.
+ *
+ * {@link #add} must be called from a single writer at a time. Readers never lock:
+ * every array is fully written before the volatile field that publishes it.
+ */
+public class KnowledgeIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, PostingList> postings;
+    private volatile int[] docLengths;
+    private volatile int[] docTermCounts;
+    private volatile int docCount;
+    private volatile long totalLength;
+
+    public KnowledgeIndex() {
+        this.postings = new ConcurrentHashMap<>();
+        this.docLengths = new int[INITIAL_CAPACITY];
+        this.docTermCounts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Indexes {@code text} under {@code id}. Ids are expected to be assigned
+     * sequentially by the caller, starting at zero.
+     */
+    public void add(int id, String text) {
+        List<String> tokens = tokenize(text);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+
+        ensureCapacity(id + 1);
+        docLengths[id] = tokens.size();
+        docTermCounts[id] = termFrequencies.size();
+        totalLength += tokens.size();
+        docCount = Math.max(docCount, id + 1);
+
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            PostingList list = postings.get(entry.getKey());
+            if (list == null) {
+                list = new PostingList();
+                postings.put(entry.getKey(), list);
+            }
+            list.add(id, entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the id of the best matching entry, or -1 if nothing matches.
+     * An entry only qualifies when all of its terms appear in the query or all
+     * of the query's terms appear in the entry; qualifying entries are ranked by BM25.
+     */
+    public int bestMatch(String query) {
+        Set<String> queryTerms = new HashSet<>(tokenize(query));
+        int documents = docCount;
+        if (queryTerms.isEmpty() || documents == 0) {
+            return -1;
+        }
+
+        double avgLength = Math.max(1.0, (double) totalLength / documents);
+        Map<Integer, Candidate> candidates = new HashMap<>();
+        for (String term : queryTerms) {
+            PostingList list = postings.get(term);
+            if (list == null) continue;
+
+            // Read the size first; everything below it is already published
+            int size = list.size;
+            int[] ids = list.ids;
+            int[] frequencies = list.frequencies;
+            int[] lengths = docLengths;
+            double idf = Math.log(1.0 + (Math.max(documents, size) - size + 0.5) / (size + 0.5));
+            for (int i = 0; i < size; i++) {
+                int id = ids[i];
+                int tf = frequencies[i];
+                double norm = K1 * (1 - B + B * lengths[id] / avgLength);
+                Candidate candidate = candidates.get(id);
+                if (candidate == null) {
+                    candidate = new Candidate();
+                    candidates.put(id, candidate);
+                }
+                candidate.score += idf * (tf * (K1 + 1)) / (tf + norm);
+                candidate.matchedTerms++;
+            }
+        }
+
+        int bestId = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int[] termCounts = docTermCounts;
+        for (Map.Entry<Integer, Candidate> entry : candidates.entrySet()) {
+            int id = entry.getKey();
+            Candidate candidate = entry.getValue();
+            boolean covers = candidate.matchedTerms == queryTerms.size()
+                    || candidate.matchedTerms == termCounts[id];
+            if (covers && candidate.score > bestScore) {
+                bestScore = candidate.score;
+                bestId = id;
+            }
+        }
+        return bestId;
+    }
+
+    public int size() {
+        return docCount;
+    }
+
+    /**
+     * Splits text into lowercase alphanumeric terms in a single pass.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > docLengths.length) {
+            int newCapacity = Math.max(required, docLengths.length * 2);
+            docLengths = Arrays.copyOf(docLengths, newCapacity);
+            docTermCounts = Arrays.copyOf(docTermCounts, newCapacity);
+        }
+    }
+
+    static class PostingList {
+        volatile int[] ids = new int[4];
+        volatile int[] frequencies = new int[4];
+        volatile int size;
+
+        void add(int id, int frequency) {
+            int count = size;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                frequencies = Arrays.copyOf(frequencies, count * 2);
+            }
+            ids[count] = id;
+            frequencies[count] = frequency;
+            size = count + 1;
+        }
+    }
+
+    static class Candidate {
+        double score;
+        int matchedTerms;
+    }
+}
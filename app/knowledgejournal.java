@@ -0,0 +1,163 @@
+// KnowledgeJournal.java
+package com.aiagent.framework.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of knowledge base writes.
+ *
+ * Each record is {@code [keyLength][valueLength][key][value][crc32]}. A record torn
+ * by a crash fails its checksum on replay and is cut off, so earlier records are
+ * never lost. During compaction the active file is rotated aside and only deleted
+ * once the new snapshot is safely on disk.
+ */
+public class KnowledgeJournal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final int CHECKSUM_SIZE = 8;
+
+    private final File activeFile;
+    private final File rotatedFile;
+    private FileOutputStream out;
+    private int recordCount;
+
+    public KnowledgeJournal(File file) {
+        this.activeFile = file;
+        this.rotatedFile = new File(file.getPath() + ".1");
+    }
+
+    /**
+     * Replays the rotated journal (left behind by an interrupted compaction) and then
+     * the active journal, stopping at the first incomplete or corrupt record.
+     */
+    public synchronized int replay(BiConsumer<String, String> consumer) throws IOException {
+        int replayed = 0;
+        if (rotatedFile.exists()) {
+            replayed += replayFile(rotatedFile, consumer);
+        }
+        if (activeFile.exists()) {
+            recordCount = replayFile(activeFile, consumer);
+            replayed += recordCount;
+        }
+        return replayed;
+    }
+
+    public synchronized void append(String key, String value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + valueBytes.length + CHECKSUM_SIZE);
+        record.putInt(keyBytes.length);
+        record.putInt(valueBytes.length);
+        record.put(keyBytes);
+        record.put(valueBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putLong(crc.getValue());
+
+        // One write per record keeps a torn tail confined to the last record
+        openIfNeeded().write(record.array());
+        recordCount++;
+    }
+
+    /**
+     * Moves the active journal aside so compaction can snapshot while new records
+     * keep landing in a fresh file.
+     */
+    public synchronized void rotate() throws IOException {
+        close();
+        if (activeFile.exists()) {
+            if (rotatedFile.exists()) {
+                // A previous compaction never finished; keep its records and add ours behind them
+                try (InputStream in = new FileInputStream(activeFile);
+                     OutputStream rotated = new FileOutputStream(rotatedFile, true)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        rotated.write(buffer, 0, read);
+                    }
+                }
+                if (!activeFile.delete()) {
+                    throw new IOException("Cannot rotate " + activeFile);
+                }
+            } else if (!activeFile.renameTo(rotatedFile)) {
+                throw new IOException("Cannot rotate " + activeFile);
+            }
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Drops the rotated journal once its records are covered by a snapshot.
+     */
+    public synchronized void discardRotated() {
+        if (rotatedFile.exists()) {
+            rotatedFile.delete();
+        }
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private FileOutputStream openIfNeeded() throws IOException {
+        if (out == null) {
+            out = new FileOutputStream(activeFile, true);
+        }
+        return out;
+    }
+
+    private int replayFile(File file, BiConsumer<String, String> consumer) throws IOException {
+        int count = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long remaining = file.length();
+            while (remaining >= HEADER_SIZE + CHECKSUM_SIZE) {
+                int keyLength = in.readInt();
+                int valueLength = in.readInt();
+                if (keyLength < 0 || valueLength < 0
+                        || (long) keyLength + valueLength > remaining - HEADER_SIZE - CHECKSUM_SIZE) {
+                    break;
+                }
+
+                byte[] body = new byte[keyLength + valueLength];
+                in.readFully(body);
+                long checksum = in.readLong();
+
+                CRC32 crc = new CRC32();
+                crc.update(ByteBuffer.allocate(HEADER_SIZE).putInt(keyLength).putInt(valueLength).array());
+                crc.update(body);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+
+                consumer.accept(new String(body, 0, keyLength, StandardCharsets.UTF_8),
+                        new String(body, keyLength, valueLength, StandardCharsets.UTF_8));
+                long recordLength = HEADER_SIZE + body.length + CHECKSUM_SIZE;
+                remaining -= recordLength;
+                validLength += recordLength;
+                count++;
+            }
+        }
+
+        // Cut off a torn tail so later appends are not hidden behind it
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,123 @@
+// KnowledgeSnapshot.java
+package com.aiagent.framework.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Read-only binary snapshot of the knowledge base, opened through a memory map.
+ *
+ * Layout: {@code [magic][version][count]}, then one {@code [keyOffset][keyLength]
+ * [valueOffset][valueLength]} row per entry, then the UTF-8 blobs. Nothing is decoded
+ * on open; keys and values are read from the mapping when asked for.
+ */
+public class KnowledgeSnapshot implements Closeable {
+    private static final int MAGIC = 0x4B425331; // "KBS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ROW_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private KnowledgeSnapshot(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a knowledge snapshot");
+        }
+        this.count = buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * ROW_SIZE > buffer.capacity()) {
+            throw new IOException("Truncated knowledge snapshot");
+        }
+    }
+
+    public static KnowledgeSnapshot open(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new KnowledgeSnapshot(channel, buffer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code keys}/{@code values} as a snapshot. The table is filled in after
+     * the blobs are streamed out, and the file only replaces {@code file} once synced.
+     */
+    public static void write(File file, List<String> keys, List<String> values) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        int count = keys.size();
+        long blobOffset = HEADER_SIZE + (long) count * ROW_SIZE;
+
+        try (FileChannel out = new RandomAccessFile(temp, "rw").getChannel()) {
+            out.truncate(0);
+            ByteBuffer table = ByteBuffer.allocate((int) blobOffset);
+            table.putInt(MAGIC).putInt(VERSION).putInt(count);
+
+            out.position(blobOffset);
+            long position = blobOffset;
+            for (int i = 0; i < count; i++) {
+                byte[] key = keys.get(i).getBytes(StandardCharsets.UTF_8);
+                byte[] value = values.get(i).getBytes(StandardCharsets.UTF_8);
+                table.putInt((int) position).putInt(key.length);
+                table.putInt((int) (position + key.length)).putInt(value.length);
+                writeFully(out, ByteBuffer.wrap(key));
+                writeFully(out, ByteBuffer.wrap(value));
+                position += key.length + value.length;
+                if (position > Integer.MAX_VALUE) {
+                    throw new IOException("Knowledge snapshot exceeds 2 GB");
+                }
+            }
+
+            table.flip();
+            out.position(0);
+            writeFully(out, table);
+            out.force(true);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String keyAt(int slot) {
+        int row = HEADER_SIZE + slot * ROW_SIZE;
+        return decode(buffer.getInt(row), buffer.getInt(row + 4));
+    }
+
+    public String valueAt(int slot) {
+        int row = HEADER_SIZE + slot * ROW_SIZE;
+        return decode(buffer.getInt(row + 8), buffer.getInt(row + 12));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String decode(int offset, int length) {
+        // Duplicates keep position state per call, so concurrent readers do not interfere
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
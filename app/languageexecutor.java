@@ -0,0 +1,332 @@
+// LanguageExecutor.java
+package com.aiagent.framework.core;
+
+/**
+ * Runs snippets of one language for {@link CodeExecutor}. Instances are created by a
+ * {@link LanguageExecutorProvider} on first use and called from many threads at once.
+ */
+public interface LanguageExecutor {
+    /**
+     * Runs {@code code}. Backends record what they can measure (compile and run time,
+     * allocation) in {@code metrics}; {@link CodeExecutor} fills in the rest.
+     */
+    CodeExecutionResult execute(String code, ExecutionMetrics metrics);
+
+    /** Releases pooled resources; called when the backend is replaced or the executor shuts down. */
+    default void shutdown() {
+    }
+}
+
+// ExecutorCapability.java
+package com.aiagent.framework.core;
+
+/**
+ * What a {@link LanguageExecutor} backend supports beyond running code.
+ */
+public enum ExecutorCapability {
+    /** Output is delivered while the snippet runs, not only in the final result. */
+    STREAMING_OUTPUT,
+    /** The sandbox time limit is enforced and stops runaway code. */
+    TIMEOUTS,
+    /** Interpreters, contexts or compiled code are reused between runs. */
+    POOLING
+}
+
+// LanguageExecutorProvider.java
+package com.aiagent.framework.core;
+
+import java.util.Set;
+
+/**
+ * Describes and creates a {@link LanguageExecutor}. Built-in backends are registered
+ * by {@link CodeExecutor}; others are found with {@link java.util.ServiceLoader} by
+ * listing them in {@code META-INF/services/com.aiagent.framework.core.LanguageExecutorProvider}.
+ *
+ * Providers are instantiated at discovery, so they should be cheap; the expensive
+ * work belongs in {@link #create}, which runs only when the language is first used.
+ * When several providers serve a language, the available one with the highest
+ * priority wins, and among equals the one registered last.
+ */
+public interface LanguageExecutorProvider {
+    /** Used by simulations that only approximate the language. */
+    int PRIORITY_FALLBACK = 0;
+    int PRIORITY_DEFAULT = 10;
+    /** Used for backends configured explicitly in code. */
+    int PRIORITY_OVERRIDE = 100;
+
+    /** Language id as passed to {@link CodeExecutor#execute}, e.g. "python"; matched case-insensitively. */
+    String getLanguage();
+
+    Set<ExecutorCapability> getCapabilities();
+
+    default int getPriority() {
+        return PRIORITY_DEFAULT;
+    }
+
+    /**
+     * Whether this backend can run here, e.g. whether its runtime is on the class path.
+     * Checked once, when the language is first used.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    LanguageExecutor create(ExecutorEnvironment environment) throws Exception;
+}
+
+// ExecutorEnvironment.java
+package com.aiagent.framework.core;
+
+import android.content.Context;
+import java.io.File;
+
+/**
+ * What a {@link LanguageExecutorProvider} gets to build its backend with.
+ */
+public class ExecutorEnvironment {
+    private final Context context;
+    private final SandboxLimits limits;
+    private File workspace;
+
+    public ExecutorEnvironment(Context context, SandboxLimits limits) {
+        this.context = context;
+        this.limits = limits;
+    }
+
+    public Context getContext() { return context; }
+    public SandboxLimits getSandboxLimits() { return limits; }
+
+    /**
+     * Scratch directory for backends that need files, created on first request.
+     */
+    public synchronized File getWorkspace() {
+        if (workspace == null) {
+            workspace = new File(context.getFilesDir(), "code_workspace");
+            if (!workspace.exists()) {
+                workspace.mkdirs();
+            }
+        }
+        return workspace;
+    }
+}
+
+// LanguageExecutorRegistry.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Language id to backend. Registering a provider costs nothing; the backend is
+ * chosen and created the first time its language is executed, so startup does not
+ * pay for interpreters that are never used.
+ */
+public class LanguageExecutorRegistry {
+    private final ExecutorEnvironment environment;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private volatile boolean discovered;
+
+    public LanguageExecutorRegistry(ExecutorEnvironment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Adds a provider. An override-priority provider replaces the previous override
+     * for its language. If it outranks the backend already created for its language,
+     * the next execution creates the new one, and the old backend is shut down once
+     * the executions already running on it have finished.
+     */
+    public void register(LanguageExecutorProvider provider) {
+        slots.computeIfAbsent(normalize(provider.getLanguage()), language -> new Slot()).add(provider);
+    }
+
+    /**
+     * The backend for {@code language}, created on first call; null if no provider
+     * for it is available. It may be replaced and shut down at any time, so code is
+     * run with {@link #execute} rather than on the returned backend.
+     */
+    public LanguageExecutor get(String language) {
+        Slot slot = slot(language);
+        Lease lease = slot != null ? slot.lease(environment) : null;
+        return lease != null ? lease.executor : null;
+    }
+
+    /**
+     * Runs {@code code} on the backend for {@code language}, which is not shut down
+     * while it runs even if a new provider replaces it meanwhile.
+     *
+     * @return null if no provider for the language is available
+     */
+    public CodeExecutionResult execute(String language, String code, ExecutionMetrics metrics) {
+        Slot slot = slot(language);
+        Lease lease = slot != null ? slot.acquire(environment) : null;
+        if (lease == null) return null;
+        try {
+            return lease.executor.execute(code, metrics);
+        } finally {
+            lease.release();
+        }
+    }
+
+    /**
+     * Capabilities of the provider that serves {@code language}, without creating
+     * the backend; empty if the language is unsupported.
+     */
+    public Set<ExecutorCapability> getCapabilities(String language) {
+        Slot slot = slot(language);
+        LanguageExecutorProvider provider = slot != null ? slot.provider() : null;
+        return provider != null ? provider.getCapabilities() : EnumSet.noneOf(ExecutorCapability.class);
+    }
+
+    public Set<String> getLanguages() {
+        discover();
+        return new TreeSet<>(slots.keySet());
+    }
+
+    public void shutdown() {
+        for (Slot slot : slots.values()) {
+            slot.shutdown();
+        }
+    }
+
+    private Slot slot(String language) {
+        discover();
+        return slots.get(normalize(language));
+    }
+
+    // Service providers are loaded on first lookup rather than at construction
+    private void discover() {
+        if (discovered) return;
+        synchronized (this) {
+            if (discovered) return;
+            Iterator<LanguageExecutorProvider> providers = ServiceLoader.load(LanguageExecutorProvider.class,
+                    LanguageExecutorProvider.class.getClassLoader()).iterator();
+            while (true) {
+                try {
+                    if (!providers.hasNext()) break;
+                    register(providers.next());
+                } catch (ServiceConfigurationError e) {
+                    e.printStackTrace();
+                }
+            }
+            discovered = true;
+        }
+    }
+
+    private static String normalize(String language) {
+        return language.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Providers for one language, best first, and the backend created from the
+     * first available one.
+     */
+    static class Slot {
+        private final List<LanguageExecutorProvider> providers = new ArrayList<>();
+        private LanguageExecutorProvider selected;
+        private volatile Lease lease;
+        private boolean resolved;
+
+        synchronized void add(LanguageExecutorProvider provider) {
+            if (provider.getPriority() == LanguageExecutorProvider.PRIORITY_OVERRIDE) {
+                // Only the backend configured last in code counts; keeping earlier ones
+                // would grow the list with every reconfiguration
+                providers.removeIf(p -> p.getPriority() == LanguageExecutorProvider.PRIORITY_OVERRIDE);
+            }
+            int index = 0;
+            while (index < providers.size() && providers.get(index).getPriority() > provider.getPriority()) {
+                index++;
+            }
+            providers.add(index, provider);
+            if (resolved && (selected == null || provider.getPriority() >= selected.getPriority())) {
+                shutdown();
+            }
+        }
+
+        synchronized LanguageExecutorProvider provider() {
+            if (resolved) return selected;
+            for (LanguageExecutorProvider provider : providers) {
+                if (provider.isAvailable()) return provider;
+            }
+            return null;
+        }
+
+        Lease lease(ExecutorEnvironment environment) {
+            Lease current = lease;
+            return current != null ? current : resolve(environment);
+        }
+
+        /**
+         * The current backend with one more execution counted on it; null if no
+         * provider is available. Must be paired with {@link Lease#release()}.
+         */
+        Lease acquire(ExecutorEnvironment environment) {
+            while (true) {
+                Lease current = lease(environment);
+                if (current == null || current.acquire()) return current;
+                // Retired since it was read; the slot already points past it
+            }
+        }
+
+        private synchronized Lease resolve(ExecutorEnvironment environment) {
+            if (!resolved) {
+                resolved = true;
+                for (LanguageExecutorProvider provider : providers) {
+                    if (!provider.isAvailable()) continue;
+                    try {
+                        lease = new Lease(provider.create(environment));
+                        selected = provider;
+                        break;
+                    } catch (Exception | LinkageError e) {
+                        // Try the next provider, e.g. the simulation
+                        e.printStackTrace();
+                    }
+                }
+            }
+            return lease;
+        }
+
+        /**
+         * Stops handing out the current backend, which shuts down after its last
+         * running execution.
+         */
+        synchronized void shutdown() {
+            Lease retired = lease;
+            lease = null;
+            selected = null;
+            resolved = false;
+            if (retired != null) {
+                retired.release();
+            }
+        }
+    }
+
+    /**
+     * A created backend and the references to it: one held by its slot until it is
+     * replaced, and one per running execution. The last release shuts it down.
+     */
+    static final class Lease {
+        final LanguageExecutor executor;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Lease(LanguageExecutor executor) {
+            this.executor = executor;
+        }
+
+        // False once shut down; a count never rises again after reaching zero
+        boolean acquire() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) return false;
+                if (references.compareAndSet(count, count + 1)) return true;
+            }
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                executor.shutdown();
+            }
+        }
+    }
+}
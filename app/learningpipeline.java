@@ -0,0 +1,256 @@
+// LearningPipeline.java
+package com.aiagent.framework.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the {@link LearningEngine} off the request path. Query and execution
+ * threads only enqueue an event; one worker drains the bounded queue in
+ * micro-batches and does the feature extraction. A full queue is handled by the
+ * {@link OverflowPolicy}, so a slow learner never grows memory or, unless asked
+ * to, delays a reply.
+ *
+ * Recorded in the agent's {@link MetricsRegistry}: {@code learning.queue_lag}, the
+ * time from enqueue to learning, {@code learning.batch}, the time to learn one
+ * batch, and counters for processed, dropped and failed events.
+ */
+public class LearningPipeline implements Closeable {
+    public enum OverflowPolicy {
+        /** Discard the event being submitted. */
+        DROP_NEWEST,
+        /** Discard the oldest queued event to make room; recent behaviour matters most. */
+        DROP_OLDEST,
+        /** Wait up to the block timeout for room, then discard the event. */
+        BLOCK
+    }
+
+    // Wakes an idle worker on close; compared by identity
+    private static final Event WAKE = new Event() {
+        @Override
+        void apply(LearningEngine engine) {
+        }
+    };
+
+    private final LearningEngine engine;
+    private final ArrayBlockingQueue<Event> queue;
+    private final int maxBatch;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final MetricsRegistry.Timer lagTimer;
+    private final MetricsRegistry.Timer batchTimer;
+    private final MetricsRegistry.Counter processedCounter;
+    private final MetricsRegistry.Counter droppedCounter;
+    private final MetricsRegistry.Counter failedCounter;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    // Guarded by this; lets flush() wait for everything accepted before it
+    private long accepted;
+    private long completed;
+    private long batches;
+
+    public LearningPipeline(LearningEngine engine, MetricsRegistry metrics, ExecutionConfig config) {
+        this.engine = engine;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getLearningQueueCapacity()));
+        this.maxBatch = Math.max(1, config.getLearningBatchSize());
+        this.overflowPolicy = config.getLearningOverflowPolicy();
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getLearningBlockTimeoutMillis());
+        this.lagTimer = metrics.timer("learning.queue_lag");
+        this.batchTimer = metrics.timer("learning.batch");
+        this.processedCounter = metrics.counter("learning.processed");
+        this.droppedCounter = metrics.counter("learning.dropped");
+        this.failedCounter = metrics.counter("learning.failed");
+        this.worker = new Thread(this::drainLoop, "learning-pipeline");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    /**
+     * Queues a query and its response for learning.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean submitInteraction(String query, String response) {
+        return submit(new Interaction(query, response));
+    }
+
+    public boolean submitCodeExecution(String code, String language, CodeExecutionResult result) {
+        return submit(new CodeExecution(code, language, result));
+    }
+
+    private boolean submit(Event event) {
+        if (closed) {
+            droppedCounter.add(1);
+            return false;
+        }
+        event.enqueuedNanos = System.nanoTime();
+        synchronized (this) {
+            accepted++;
+        }
+        boolean queued;
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                queued = queue.offer(event);
+                while (!queued) {
+                    Event oldest = queue.poll();
+                    if (oldest == WAKE) {
+                        // Closing; leave the wake-up for the worker
+                        queue.offer(WAKE);
+                        break;
+                    }
+                    if (oldest != null) {
+                        droppedCounter.add(1);
+                        markCompleted(1);
+                    }
+                    queued = queue.offer(event);
+                }
+                break;
+            case BLOCK:
+                try {
+                    queued = queue.offer(event, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    queued = false;
+                }
+                break;
+            default:
+                queued = queue.offer(event);
+                break;
+        }
+        if (!queued) {
+            droppedCounter.add(1);
+            markCompleted(1);
+        }
+        return queued;
+    }
+
+    /**
+     * Blocks until every event accepted before this call has been learned or dropped.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            long target = accepted;
+            while (completed < target && worker.isAlive()) {
+                wait(100);
+            }
+        }
+    }
+
+    // Statistics
+    public int getQueueDepth() { return queue.size(); }
+    public int getQueueCapacity() { return queue.size() + queue.remainingCapacity(); }
+    public synchronized long getBatchCount() { return batches; }
+    public long getProcessedCount() { return processedCounter.get(); }
+    public long getDroppedCount() { return droppedCounter.get(); }
+
+    /**
+     * Age of the oldest queued event, or 0 if the queue is empty.
+     */
+    public long getCurrentLagNanos() {
+        Event oldest = queue.peek();
+        return oldest != null && oldest != WAKE ? System.nanoTime() - oldest.enqueuedNanos : 0;
+    }
+
+    /**
+     * Stops accepting events and waits up to five seconds for the worker to learn
+     * what is queued. The worker stops once the queue is empty, even if that takes
+     * longer.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        // A full queue needs no wake-up: the worker is busy and sees the flag once it empties
+        queue.offer(WAKE);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(maxBatch);
+        // Checked before every take, so the flag is seen before the worker could block
+        while (!(closed && queue.isEmpty())) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = System.nanoTime();
+            int learned = 0;
+            for (Event event : batch) {
+                if (event == WAKE) {
+                    continue;
+                }
+                lagTimer.record(start - event.enqueuedNanos);
+                try {
+                    event.apply(engine);
+                    processedCounter.add(1);
+                } catch (Exception e) {
+                    // Counted in learning.failed; one bad event must not stop the drain
+                    failedCounter.add(1);
+                }
+                learned++;
+            }
+            if (learned > 0) {
+                batchTimer.record(System.nanoTime() - start);
+                synchronized (this) {
+                    batches++;
+                }
+                markCompleted(learned);
+            }
+            batch.clear();
+        }
+    }
+
+    private synchronized void markCompleted(int count) {
+        completed += count;
+        notifyAll();
+    }
+
+    abstract static class Event {
+        long enqueuedNanos;
+
+        abstract void apply(LearningEngine engine);
+    }
+
+    static class Interaction extends Event {
+        private final String query;
+        private final String response;
+
+        Interaction(String query, String response) {
+            this.query = query;
+            this.response = response;
+        }
+
+        @Override
+        void apply(LearningEngine engine) {
+            engine.learnFromInteraction(query, response);
+        }
+    }
+
+    static class CodeExecution extends Event {
+        private final String code;
+        private final String language;
+        private final CodeExecutionResult result;
+
+        CodeExecution(String code, String language, CodeExecutionResult result) {
+            this.code = code;
+            this.language = language;
+            this.result = result;
+        }
+
+        @Override
+        void apply(LearningEngine engine) {
+            engine.learnFromCodeExecution(code, language, result);
+        }
+    }
+}
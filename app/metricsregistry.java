@@ -0,0 +1,175 @@
+// MetricsRegistry.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named timers and counters, safe to update from any thread without locking.
+ * Timers keep a power-of-two histogram so percentiles are available without
+ * storing individual samples.
+ */
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MovingAverage> averages = new ConcurrentHashMap<>();
+
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Exponential moving average that gives each new sample {@code weight}; the
+     * weight of the first call for a name sticks.
+     */
+    public MovingAverage average(String name, double weight) {
+        MovingAverage average = averages.get(name);
+        return average != null ? average : averages.computeIfAbsent(name, n -> new MovingAverage(weight));
+    }
+
+    /**
+     * Records one code execution under {@code code.<language>.*}.
+     */
+    public void recordExecution(String language, CodeExecutionResult result) {
+        String prefix = "code." + language.toLowerCase() + ".";
+        ExecutionMetrics metrics = result.getMetrics();
+        timer(prefix + "queue_wait").record(metrics.getQueueWaitNanos());
+        timer(prefix + "compile").record(metrics.getCompileNanos());
+        timer(prefix + "run").record(metrics.getRunNanos());
+        counter(prefix + "output_bytes").add(metrics.getOutputBytes());
+        if (metrics.getAllocatedBytes() >= 0) {
+            counter(prefix + "allocated_bytes").add(metrics.getAllocatedBytes());
+        }
+        counter(prefix + (result.isSuccess() ? "succeeded" : "failed")).add(1);
+        if (result.isLimitExceeded()) {
+            counter(prefix + "limit." + result.getLimitExceeded().name().toLowerCase()).add(1);
+        }
+    }
+
+    public Map<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    public Map<String, MovingAverage> getAverages() {
+        return new TreeMap<>(averages);
+    }
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(get());
+        }
+    }
+
+    public static class MovingAverage {
+        // Double bits; NaN until the first sample
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+        private final double weight;
+
+        MovingAverage(double weight) {
+            this.weight = weight;
+        }
+
+        public void record(double sample) {
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double average = Double.longBitsToDouble(current);
+                next = Double.doubleToRawLongBits(Double.isNaN(average)
+                        ? sample : average * (1 - weight) + sample * weight);
+            } while (!bits.compareAndSet(current, next));
+        }
+
+        /** The average so far, or 0 before any sample. */
+        public double get() {
+            double average = Double.longBitsToDouble(bits.get());
+            return Double.isNaN(average) ? 0 : average;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.3f", get());
+        }
+    }
+
+    public static class Timer {
+        // Bucket i holds samples in [2^(i-1), 2^i) nanoseconds; bucket 0 holds zero
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Retry until the larger value is in place
+            }
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+
+        public long getMeanNanos() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalNanos() / n;
+        }
+
+        /**
+         * Upper bound of the bucket containing the given quantile, e.g. 0.99; within
+         * a factor of two of the true value.
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(getMaxNanos(), (1L << i) - 1);
+                }
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + " mean=" + getMeanNanos() / 1000 + "us p99="
+                    + getPercentileNanos(0.99) / 1000 + "us max=" + getMaxNanos() / 1000 + "us";
+        }
+    }
+}
@@ -3,35 +3,240 @@ package com.aiagent.framework.core;
 
 import android.content.Context;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.io.*;
 import org.json.JSONObject;
 
+/**
+ * Reads ({@link #search}) never lock and may run on any number of threads.
+ * Writes are serialized on this instance, so there is only ever one writer.
+ */
 public class KnowledgeBase {
+    private static final int COMPACTION_THRESHOLD = 500;
+    private static final int VECTOR_BACKFILL_BATCH = 256;
+    // Frame a question rather than say what it is about
+    private static final Set<String> QUESTION_TERMS = new HashSet<>(Arrays.asList(
+            "how", "what", "why", "when", "where", "which", "who", "show", "write", "tell", "explain",
+            "give", "make", "create", "get", "use", "using", "way", "best"));
+    private static final String[] INFLECTIONS = {"ing", "ed", "es", "er", "or", "s", "e"};
+    
     private Context context;
-    private Map<String, String> knowledgeMap;
-    private File knowledgeFile;
+    private Map<String, Integer> entryIds;
+    private EntryTable entries;
+    private KnowledgeIndex index;
+    private volatile Embedder embedder;
+    private volatile VectorIndex vectorIndex;
+    private volatile float similarityThreshold = 0.6f;
+    private volatile KnowledgeSnapshot snapshot;
+    private File snapshotFile;
+    private File legacyJsonFile;
+    private KnowledgeJournal journal;
+    private ExecutorService compactionExecutor;
+    private boolean compactionPending;
+    private final Object compactionLock = new Object();
     
     public KnowledgeBase(Context context) {
+        this(context.getFilesDir());
         this.context = context;
-        this.knowledgeMap = new HashMap<>();
-        this.knowledgeFile = new File(context.getFilesDir(), "knowledge_base.json");
+    }
+    
+    public KnowledgeBase(File directory) {
+        this.entryIds = new ConcurrentHashMap<>();
+        this.entries = new EntryTable();
+        this.index = new KnowledgeIndex();
+        this.snapshotFile = new File(directory, "knowledge_base.bin");
+        this.legacyJsonFile = new File(directory, "knowledge_base.json");
+        this.journal = new KnowledgeJournal(new File(directory, "knowledge_base.journal"));
+        this.compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "knowledge-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
         loadKnowledge();
     }
     
     public String search(String query) {
-        // Simple keyword matching
-        for (Map.Entry<String, String> entry : knowledgeMap.entrySet()) {
-            if (entry.getKey().toLowerCase().contains(query.toLowerCase()) ||
-                query.toLowerCase().contains(entry.getKey().toLowerCase())) {
-                return entry.getValue();
-            }
+        // Exact hits skip scoring entirely
+        Integer exact = entryIds.get(query);
+        if (exact != null) {
+            return valueOf(exact);
+        }
+        
+        int id = index.bestMatch(query);
+        if (id >= 0) {
+            return valueOf(id);
+        }
+        
+        // Paraphrases miss the keyword index; fall back to the closest stored query
+        List<SearchHit> similar = searchSimilar(query, 1);
+        if (!similar.isEmpty() && similar.get(0).getScore() >= similarityThreshold
+                && sharesDistinguishingTerms(query, similar.get(0).getQuery())) {
+            return similar.get(0).getResponse();
         }
         return null;
     }
     
-    public void store(String query, String response) {
-        knowledgeMap.put(query, response);
-        saveKnowledge();
+    // Similar wording is not enough: "sort a list in python" is close to "sort a list
+    // in java". A hit is a near miss when each side has a term the other lacks;
+    // inflections and typos ("sorting", "lst") still count as the same term
+    private static boolean sharesDistinguishingTerms(String query, String storedQuery) {
+        Set<String> queryTerms = contentTerms(query);
+        Set<String> storedTerms = contentTerms(storedQuery);
+        return !(hasUnmatchedTerm(queryTerms, storedTerms) && hasUnmatchedTerm(storedTerms, queryTerms));
+    }
+    
+    private static Set<String> contentTerms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String term : KnowledgeIndex.tokenize(text)) {
+            if (!HashingEmbedder.STOP_WORDS.contains(term) && !QUESTION_TERMS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+    
+    private static boolean hasUnmatchedTerm(Set<String> terms, Set<String> others) {
+        outer:
+        for (String term : terms) {
+            for (String other : others) {
+                if (isSameTerm(term, other)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+    
+    private static boolean isSameTerm(String a, String b) {
+        if (a.equals(b)) return true;
+        if (a.length() < 3 || b.length() < 3) return false;
+        // Either side may be the bare word ("string" would stem to "str")
+        String stemA = stem(a);
+        String stemB = stem(b);
+        return stemA.equals(stemB) || stemA.equals(b) || a.equals(stemB)
+                || withinOneEdit(a, b) || withinOneEdit(stemA, stemB);
+    }
+    
+    private static String stem(String term) {
+        for (String suffix : INFLECTIONS) {
+            if (term.length() - suffix.length() >= 3 && term.endsWith(suffix)) {
+                return term.substring(0, term.length() - suffix.length());
+            }
+        }
+        return term;
+    }
+    
+    private static boolean withinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) return false;
+        int i = 0;
+        int j = 0;
+        int edits = 0;
+        while (i < a.length() && j < b.length()) {
+            if (a.charAt(i) == b.charAt(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            if (++edits > 1) return false;
+            if (a.length() > b.length()) i++;
+            else if (b.length() > a.length()) j++;
+            else {
+                i++;
+                j++;
+            }
+        }
+        return edits + (a.length() - i) + (b.length() - j) <= 1;
+    }
+    
+    /**
+     * Returns up to {@code k} stored entries ranked by cosine similarity to
+     * {@code query}, or an empty list when vector search is not enabled.
+     */
+    public List<SearchHit> searchSimilar(String query, int k) {
+        VectorIndex vectors = vectorIndex;
+        if (vectors == null) {
+            return Collections.emptyList();
+        }
+        
+        List<SearchHit> hits = new ArrayList<>();
+        for (VectorIndex.Neighbor neighbor : vectors.search(embedder.embed(query), k)) {
+            hits.add(new SearchHit(entries.keyAt(neighbor.id), valueOf(neighbor.id), neighbor.similarity));
+        }
+        return hits;
+    }
+    
+    /**
+     * Embeds every stored query with {@code embedder} and keeps new stores indexed.
+     * Existing entries are backfilled in the background, a batch at a time.
+     */
+    public synchronized void enableVectorSearch(Embedder embedder) {
+        if (vectorIndex != null) {
+            return;
+        }
+        this.embedder = embedder;
+        this.vectorIndex = new VectorIndex(embedder.dimension());
+        
+        int backfillLimit = entries.size();
+        compactionExecutor.execute(() -> {
+            for (int start = 0; start < backfillLimit; start += VECTOR_BACKFILL_BATCH) {
+                synchronized (this) {
+                    int end = Math.min(backfillLimit, start + VECTOR_BACKFILL_BATCH);
+                    for (int id = start; id < end; id++) {
+                        vectorIndex.add(id, embedder.embed(entries.keyAt(id)));
+                    }
+                }
+            }
+        });
+    }
+    
+    public void setSimilarityThreshold(float similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+    
+    public synchronized void store(String query, String response) {
+        putEntry(query, response);
+        try {
+            journal.append(query, response);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        if (journal.getRecordCount() >= COMPACTION_THRESHOLD) {
+            scheduleCompaction();
+        }
+    }
+    
+    // Only called by the writer; the entry is in place before its id becomes reachable
+    private void putEntry(String query, String response) {
+        Integer id = entryIds.get(query);
+        if (id != null) {
+            entries.setValue(id, response);
+            return;
+        }
+        
+        int newId = entries.add(query, response);
+        entryIds.put(query, newId);
+        index.add(newId, query);
+        if (vectorIndex != null) {
+            vectorIndex.add(newId, embedder.embed(query));
+        }
+    }
+    
+    private String valueOf(int id) {
+        String value = entries.valueAt(id);
+        return value != null ? value : snapshot.valueAt(id);
+    }
+    
+    // Statistics
+    public int getEntryCount() { return entries.size(); }
+    
+    /** Entries whose value is held on the heap rather than read from the snapshot. */
+    public int getHeapValueCount() {
+        int count = 0;
+        for (int id = 0; id < entries.size(); id++) {
+            if (entries.valueAt(id) != null) count++;
+        }
+        return count;
     }
     
     public Map<String, String> getCodeTemplates() {
@@ -42,32 +247,148 @@ public class KnowledgeBase {
         return templates;
     }
     
+    /**
+     * Folds the journal into a fresh binary snapshot. The journal is rotated first
+     * so stores can continue while the snapshot is written. Afterwards reads go to
+     * the new snapshot and the values it holds are dropped from the heap.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            List<String> keys;
+            List<String> values;
+            synchronized (this) {
+                compactionPending = false;
+                try {
+                    journal.rotate();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                keys = new ArrayList<>();
+                values = new ArrayList<>();
+                for (int i = 0; i < entries.size(); i++) {
+                    keys.add(entries.keyAt(i));
+                    values.add(entries.valueAt(i));
+                }
+            }
+            
+            try {
+                for (int i = 0; i < values.size(); i++) {
+                    if (values.get(i) == null) {
+                        values.set(i, snapshot.valueAt(i));
+                    }
+                }
+                // The current mapping stays valid after the rename, so slot ids keep resolving
+                KnowledgeSnapshot.write(snapshotFile, keys, values);
+                journal.discardRotated();
+                releaseSnapshotted(KnowledgeSnapshot.open(snapshotFile), values);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private synchronized void releaseSnapshotted(KnowledgeSnapshot fresh, List<String> values) throws IOException {
+        KnowledgeSnapshot previous = snapshot;
+        // Published first, so a reader that finds a value dropped reads it from here
+        snapshot = fresh;
+        for (int id = 0; id < values.size(); id++) {
+            // Identity: a store since the rotation put a new value, which only the journal has
+            if (entries.valueAt(id) == values.get(id)) {
+                entries.setValue(id, null);
+            }
+        }
+        if (previous != null) {
+            // Readers still holding it keep working: closing the channel leaves the mapping
+            previous.close();
+        }
+    }
+    
+    /**
+     * Merges entries from a JSON object file, the pre-snapshot storage format.
+     */
+    public synchronized void importJson(File file) throws Exception {
+        JSONObject json = new JSONObject(readFile(file));
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            String value = json.getString(key);
+            putEntry(key, value);
+            journal.append(key, value);
+        }
+    }
+    
+    public void exportJson(File file) throws Exception {
+        JSONObject json = new JSONObject();
+        synchronized (this) {
+            for (int i = 0; i < entries.size(); i++) {
+                json.put(entries.keyAt(i), valueOf(i));
+            }
+        }
+        writeFile(file, json.toString());
+    }
+    
+    public void close() {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            journal.close();
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private void scheduleCompaction() {
+        if (!compactionPending) {
+            compactionPending = true;
+            compactionExecutor.execute(this::compact);
+        }
+    }
+    
     private void loadKnowledge() {
         try {
-            if (knowledgeFile.exists()) {
-                String content = readFile(knowledgeFile);
-                JSONObject json = new JSONObject(content);
+            if (snapshotFile.exists()) {
+                snapshot = KnowledgeSnapshot.open(snapshotFile);
+                for (int slot = 0; slot < snapshot.size(); slot++) {
+                    String key = snapshot.keyAt(slot);
+                    entries.add(key, null);
+                    entryIds.put(key, slot);
+                    index.add(slot, key);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        // Older installs keep their base in JSON; it is folded into the first binary snapshot
+        boolean migrating = snapshot == null && legacyJsonFile.exists();
+        if (migrating) {
+            try {
+                JSONObject json = new JSONObject(readFile(legacyJsonFile));
                 Iterator<String> keys = json.keys();
                 while (keys.hasNext()) {
                     String key = keys.next();
-                    knowledgeMap.put(key, json.getString(key));
+                    putEntry(key, json.getString(key));
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-    }
-    
-    private void saveKnowledge() {
+        
         try {
-            JSONObject json = new JSONObject();
-            for (Map.Entry<String, String> entry : knowledgeMap.entrySet()) {
-                json.put(entry.getKey(), entry.getValue());
-            }
-            writeFile(knowledgeFile, json.toString());
-        } catch (Exception e) {
+            journal.replay(this::putEntry);
+        } catch (IOException e) {
             e.printStackTrace();
         }
+        
+        if (migrating) {
+            scheduleCompaction();
+        }
     }
     
     private String readFile(File file) throws IOException {
@@ -82,8 +403,78 @@ public class KnowledgeBase {
     }
     
     private void writeFile(File file, String content) throws IOException {
-        try (FileWriter writer = new FileWriter(file)) {
+        // Write beside the target and rename so a crash never leaves a half-written file
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             Writer writer = new OutputStreamWriter(out, "UTF-8")) {
             writer.write(content);
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+    
+    public static class SearchHit {
+        private final String query;
+        private final String response;
+        private final float score;
+        
+        SearchHit(String query, String response, float score) {
+            this.query = query;
+            this.response = response;
+            this.score = score;
+        }
+        
+        public String getQuery() { return query; }
+        public String getResponse() { return response; }
+        public float getScore() { return score; }
+    }
+    
+    /**
+     * Append-only id -> key/value table. Values may be replaced; a null value means
+     * the entry still lives, undecoded, in the snapshot slot with the same id.
+     */
+    static class EntryTable {
+        private volatile AtomicReferenceArray<String> keys = new AtomicReferenceArray<>(16);
+        private volatile AtomicReferenceArray<String> values = new AtomicReferenceArray<>(16);
+        private volatile int size;
+        
+        int size() {
+            return size;
+        }
+        
+        String keyAt(int id) {
+            return keys.get(id);
+        }
+        
+        String valueAt(int id) {
+            return values.get(id);
+        }
+        
+        int add(String key, String value) {
+            int id = size;
+            if (id == keys.length()) {
+                keys = grow(keys, id);
+                values = grow(values, id);
+            }
+            keys.set(id, key);
+            values.set(id, value);
+            size = id + 1;
+            return id;
+        }
+        
+        void setValue(int id, String value) {
+            values.set(id, value);
+        }
+        
+        private static AtomicReferenceArray<String> grow(AtomicReferenceArray<String> array, int length) {
+            AtomicReferenceArray<String> grown = new AtomicReferenceArray<>(length * 2);
+            for (int i = 0; i < length; i++) {
+                grown.set(i, array.get(i));
+            }
+            return grown;
         }
     }
 }
@@ -92,44 +483,323 @@ public class KnowledgeBase {
 package com.aiagent.framework.core;
 
 import android.content.Context;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
+/**
+ * Short- and long-term key/value memory shared by every agent thread. Both tiers
+ * are {@link ShardedCache}s bounded by estimated bytes: short-term memory is LRU
+ * with a time to live, long-term memory is LFU so facts that keep being recalled
+ * survive a stream of one-off entries.
+ *
+ * Long-term memory is tiered. The heap cache is the hot tier over a cold
+ * {@link SegmentStore} on disk, which every long-term write also goes to in the
+ * background. Entries leave the heap when the cache is full or the heap runs short,
+ * {@link #getLongTerm} brings them back, and they survive restarts. Values with no
+ * on-disk encoding stay on the heap only, so demotion skips them; only the cache's
+ * own size limit evicts them.
+ */
 public class MemoryManager {
+    // Map node, entry object and key header, on top of the key and value themselves
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final double HEAP_PRESSURE_RATIO = 0.75;
+    private static final int HEAP_CHECK_INTERVAL = 32;
+    // ComponentCallbacks2 trim levels
+    private static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    private static final int TRIM_MEMORY_COMPLETE = 80;
+    private static final String CONVERSATION_KEY_PREFIX = "conversation:";
+
     private Context context;
-    private Map<String, Object> shortTermMemory;
-    private Map<String, Object> longTermMemory;
-    private final int MAX_SHORT_TERM_SIZE = 100;
+    private final ShardedCache<String, Object> shortTermMemory;
+    private final ShardedCache<String, Object> longTermMemory;
+    private final SegmentStore coldStore;
+    private final AtomicLong longTermWrites = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong pressureTrims = new AtomicLong();
+    // Long-term keys whose values exist only on the heap
+    private final Set<String> heapOnlyKeys = ConcurrentHashMap.newKeySet();
+    private final ConversationSettings conversationSettings;
+    private final ShardedCache<String, ConversationBuffer> conversations;
+    private volatile ConversationSummarizer conversationSummarizer = ConversationSummarizer.firstSentences();
     
     public MemoryManager(Context context) {
+        this(context,
+                new CacheSettings().setMaxWeightBytes(4L * 1024 * 1024).setTtlMillis(30 * 60 * 1000L),
+                new CacheSettings().setMaxWeightBytes(16L * 1024 * 1024)
+                        .setPolicy(CacheSettings.EvictionPolicy.LFU));
+    }
+
+    public MemoryManager(Context context, CacheSettings shortTerm, CacheSettings longTerm) {
+        this(context, shortTerm, longTerm, new ConversationSettings());
+    }
+
+    public MemoryManager(Context context, CacheSettings shortTerm, CacheSettings longTerm,
+                         ConversationSettings conversation) {
         this.context = context;
-        this.shortTermMemory = new LinkedHashMap<String, Object>() {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
-                return size() > MAX_SHORT_TERM_SIZE;
-            }
-        };
-        this.longTermMemory = new HashMap<>();
+        this.shortTermMemory = new ShardedCache<>(shortTerm, MemoryManager::estimateEntryBytes);
+        this.longTermMemory = new ShardedCache<>(longTerm, MemoryManager::estimateEntryBytes);
+        this.longTermMemory.addEvictionListener((key, value, cause) -> heapOnlyKeys.remove(key));
+        this.coldStore = openColdStore(new File(context.getFilesDir(), "long_term_memory.seg"));
+        this.conversationSettings = conversation;
+        // Every session is charged its full budget, so the cache holds maxSessions of them
+        long sessionBytes = estimateSessionBytes(conversation);
+        int shards = Math.max(1, Math.min(8, conversation.getMaxSessions() / 16));
+        this.conversations = new ShardedCache<>(new CacheSettings()
+                .setMaxWeightBytes(sessionBytes * conversation.getMaxSessions())
+                .setTtlMillis(conversation.getSessionIdleMillis())
+                .setShards(shards),
+                (sessionId, buffer) -> sessionBytes);
+        this.conversations.addEvictionListener((sessionId, buffer, cause) -> persistConversation(buffer));
+    }
+
+    private static SegmentStore openColdStore(File file) {
+        try {
+            return new SegmentStore(file);
+        } catch (IOException e) {
+            // Long-term memory still works, on the heap only
+            e.printStackTrace();
+            return null;
+        }
     }
     
     public void storeShortTerm(String key, Object value) {
         shortTermMemory.put(key, value);
     }
+
+    /** Like {@link #storeShortTerm(String, Object)} with its own time to live. */
+    public void storeShortTerm(String key, Object value, long ttlMillis) {
+        shortTermMemory.put(key, value, ttlMillis);
+    }
     
     public void storeLongTerm(String key, Object value) {
+        boolean onDisk = false;
+        if (coldStore != null) {
+            if (value != null) {
+                onDisk = coldStore.put(key, value);
+            } else {
+                coldStore.remove(key);
+            }
+        }
+        // Before the put, which may evict it and fire the listener
+        if (onDisk || value == null) {
+            heapOnlyKeys.remove(key);
+        } else {
+            heapOnlyKeys.add(key);
+        }
         longTermMemory.put(key, value);
+        if (longTermWrites.incrementAndGet() % HEAP_CHECK_INTERVAL == 0) {
+            relieveHeapPressure();
+        }
     }
     
     public Object getShortTerm(String key) {
         return shortTermMemory.get(key);
     }
     
+    /**
+     * Reads from the heap tier, falling back to disk; a value found on disk is
+     * promoted back onto the heap.
+     */
     public Object getLongTerm(String key) {
-        return longTermMemory.get(key);
+        Object value = longTermMemory.get(key);
+        if (value != null || coldStore == null) {
+            return value;
+        }
+        try {
+            value = coldStore.get(key);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (value != null) {
+            longTermMemory.put(key, value);
+            promotions.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void removeLongTerm(String key) {
+        longTermMemory.remove(key);
+        heapOnlyKeys.remove(key);
+        if (coldStore != null) {
+            coldStore.remove(key);
+        }
+    }
+
+    /**
+     * The conversation context of {@code sessionId}, created on first use. A session
+     * that was dropped for being idle or crowded out starts again from the summary it
+     * left in long-term memory.
+     */
+    public ConversationBuffer getConversation(String sessionId) {
+        ConversationBuffer buffer = conversations.get(sessionId);
+        if (buffer != null) {
+            return buffer;
+        }
+        // Read outside the cache's lock, the summary may come from disk
+        Object summary = getLongTerm(CONVERSATION_KEY_PREFIX + sessionId);
+        ConversationBuffer created = new ConversationBuffer(sessionId, conversationSettings,
+                (previous, turn) -> conversationSummarizer.summarize(previous, turn),
+                summary instanceof String ? (String) summary : null);
+        buffer = conversations.computeIfAbsent(sessionId, id -> created);
+        return buffer != null ? buffer : created;
+    }
+
+    /**
+     * Appends a turn to the session and restarts its idle timer.
+     */
+    public void recordTurn(String sessionId, String query, String response, String topic) {
+        ConversationBuffer buffer = getConversation(sessionId);
+        buffer.append(query, response, topic);
+        conversations.put(sessionId, buffer);
+    }
+
+    /** Ends a session now, keeping its summary in long-term memory. */
+    public void endConversation(String sessionId) {
+        ConversationBuffer buffer = conversations.remove(sessionId);
+        if (buffer != null) {
+            persistConversation(buffer);
+        }
+    }
+
+    public void setConversationSummarizer(ConversationSummarizer summarizer) {
+        this.conversationSummarizer = summarizer;
+    }
+
+    public ShardedCache<String, ConversationBuffer> getConversationCache() {
+        return conversations;
+    }
+
+    private void persistConversation(ConversationBuffer buffer) {
+        String text = buffer.describe();
+        if (!text.isEmpty()) {
+            storeLongTerm(CONVERSATION_KEY_PREFIX + buffer.getSessionId(), text);
+        }
+    }
+
+    private static long estimateSessionBytes(ConversationSettings settings) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (settings.getMaxChars() + settings.getMaxSummaryChars())
+                + 64L * settings.getMaxTurns();
+    }
+
+    /**
+     * Frees heap in response to {@code ComponentCallbacks2.onTrimMemory}. Long-term
+     * entries are only dropped from the heap tier if they are on disk.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            longTermMemory.trimTo(0, heapOnlyKeys::contains);
+            shortTermMemory.trimTo(0.5);
+            // Dropped sessions leave their summaries behind
+            conversations.trimTo(0.5);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            longTermMemory.trimTo(0.5, heapOnlyKeys::contains);
+        }
+    }
+
+    /**
+     * Saves open conversations, writes pending long-term entries and closes the disk tier.
+     */
+    public void close() {
+        for (ConversationBuffer buffer : conversations.snapshot().values()) {
+            persistConversation(buffer);
+        }
+        if (coldStore != null) {
+            try {
+                coldStore.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Demotes half the heap tier when most of the heap is still live after garbage
+    // collection; where that cannot be measured (Android), onTrimMemory does this
+    private void relieveHeapPressure() {
+        if (coldStore == null) return;
+        long live = HeapMeter.get().liveBytesAfterGc();
+        if (live > Runtime.getRuntime().maxMemory() * HEAP_PRESSURE_RATIO) {
+            longTermMemory.trimTo(0.5, heapOnlyKeys::contains);
+            pressureTrims.incrementAndGet();
+        }
     }
     
     public void clearShortTerm() {
         shortTermMemory.clear();
     }
+
+    public void addShortTermEvictionListener(ShardedCache.EvictionListener<String, Object> listener) {
+        shortTermMemory.addEvictionListener(listener);
+    }
+
+    public void addLongTermEvictionListener(ShardedCache.EvictionListener<String, Object> listener) {
+        longTermMemory.addEvictionListener(listener);
+    }
+
+    public ShardedCache<String, Object> getShortTermCache() {
+        return shortTermMemory;
+    }
+
+    public ShardedCache<String, Object> getLongTermCache() {
+        return longTermMemory;
+    }
+
+    // Statistics
+    public long getPromotionCount() { return promotions.get(); }
+    public long getPressureTrimCount() { return pressureTrims.get(); }
+    public int getColdEntryCount() { return coldStore != null ? coldStore.getEntryCount() : 0; }
+    public int getConversationCount() { return conversations.getEntryCount(); }
+
+    static long estimateEntryBytes(String key, Object value) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + estimateBytes(value, 0);
+    }
+
+    /**
+     * Rough retained size of a stored value. Containers are walked a few levels
+     * deep; anything unknown is charged a flat amount.
+     */
+    static long estimateBytes(Object value, int depth) {
+        if (value == null) return 0;
+        if (value instanceof CharSequence) return 40 + 2L * ((CharSequence) value).length();
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) return 16;
+        if (value instanceof byte[]) return 16 + ((byte[]) value).length;
+        if (value instanceof double[]) return 16 + 8L * ((double[]) value).length;
+        if (value instanceof float[]) return 16 + 4L * ((float[]) value).length;
+        if (value instanceof int[]) return 16 + 4L * ((int[]) value).length;
+        if (value instanceof long[]) return 16 + 8L * ((long[]) value).length;
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            // Parsed JSON is several times larger than its text
+            return 48 + 6L * value.toString().length();
+        }
+        if (depth >= 3) return 64;
+        if (value instanceof Map) {
+            long bytes = 64;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 48 + estimateBytes(entry.getKey(), depth + 1) + estimateBytes(entry.getValue(), depth + 1);
+            }
+            return bytes;
+        }
+        if (value instanceof Collection) {
+            long bytes = 48;
+            for (Object element : (Collection<?>) value) {
+                bytes += 8 + estimateBytes(element, depth + 1);
+            }
+            return bytes;
+        }
+        if (value instanceof Object[]) {
+            long bytes = 16;
+            for (Object element : (Object[]) value) {
+                bytes += 8 + estimateBytes(element, depth + 1);
+            }
+            return bytes;
+        }
+        return 64;
+    }
 }
 
 // Simplified LearningEngine.java
@@ -137,20 +807,48 @@ package com.aiagent.framework.core;
 
 import android.content.Context;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
 import org.json.JSONObject;
 import org.json.JSONArray;
 
 public class LearningEngine {
+    public static final int DEFAULT_PATTERN_CAPACITY = 4096;
+    // Columns of every stored pattern
+    public static final int FEATURE_QUERY_LENGTH = 0;
+    public static final int FEATURE_RESPONSE_LENGTH = 1;
+    public static final int FEATURE_HAS_CODE = 2;
+    private static final int FEATURE_COUNT = 3;
+    // Share of each new execution in the recent_* averages
+    private static final double RECENT_WEIGHT = 0.1;
+
     private Context context;
     private Map<String, Double> featureWeights;
-    private List<LearningPattern> patterns;
+    private final PatternRing patterns;
+    private final MetricsRegistry registry;
     private File learningDataFile;
     
     public LearningEngine(Context context) {
+        this(context, DEFAULT_PATTERN_CAPACITY);
+    }
+
+    /**
+     * @param patternCapacity interactions remembered, up to {@link PatternRing#MAX_CAPACITY}
+     */
+    public LearningEngine(Context context, int patternCapacity) {
+        this(context, patternCapacity, new MetricsRegistry());
+    }
+
+    /**
+     * @param registry where execution statistics go; feature weights only hold
+     *                learned weights
+     */
+    public LearningEngine(Context context, int patternCapacity, MetricsRegistry registry) {
         this.context = context;
-        this.featureWeights = new HashMap<>();
-        this.patterns = new ArrayList<>();
+        this.registry = registry;
+        // Updated from every code-execution thread
+        this.featureWeights = new ConcurrentHashMap<>();
+        this.patterns = new PatternRing(patternCapacity, FEATURE_COUNT);
         this.learningDataFile = new File(context.getFilesDir(), "learning_data.json");
         
         initializeWeights();
@@ -164,55 +862,72 @@ public class LearningEngine {
 
     public void learnFromInteraction(String query, String response) {
         try {
-            LearningPattern pattern = new LearningPattern();
-            pattern.input = query;
-            pattern.output = response;
-            pattern.timestamp = System.currentTimeMillis();
-            pattern.features = extractSimpleFeatures(query, response);
-            
-            patterns.add(pattern);
-            
-            // Limit pattern storage
-            if (patterns.size() > 100) {
-                patterns.remove(0);
-            }
-            
+            patterns.add(query.hashCode(), System.currentTimeMillis(), extractSimpleFeatures(query, response));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Learns from one execution. Its measurements feed recent per-language averages,
+     * {@code code.<language>.recent_*}, in the metrics registry; the registry's timers
+     * keep the full history.
+     */
     public void learnFromCodeExecution(String code, String language, CodeExecutionResult result) {
         try {
-            Map<String, Object> learningData = new HashMap<>();
-            learningData.put("code", code);
-            learningData.put("language", language);
-            learningData.put("success", result.isSuccess());
-            learningData.put("timestamp", System.currentTimeMillis());
-            
             // Simple learning from success/failure
             if (result.isSuccess()) {
                 Double currentWeight = featureWeights.getOrDefault("code_success", 0.5);
                 featureWeights.put("code_success", Math.min(1.0, currentWeight + 0.01));
             }
             
+            // Moving averages per language, for spotting slow or heavy workloads
+            ExecutionMetrics metrics = result.getMetrics();
+            String prefix = "code." + language.toLowerCase() + ".recent_";
+            registry.average(prefix + "queue_wait_ms", RECENT_WEIGHT).record(metrics.getQueueWaitNanos() / 1_000_000.0);
+            registry.average(prefix + "compile_ms", RECENT_WEIGHT).record(metrics.getCompileNanos() / 1_000_000.0);
+            registry.average(prefix + "run_ms", RECENT_WEIGHT).record(metrics.getRunNanos() / 1_000_000.0);
+            registry.average(prefix + "output_bytes", RECENT_WEIGHT).record(metrics.getOutputBytes());
+            if (metrics.getAllocatedBytes() >= 0) {
+                registry.average(prefix + "allocated_bytes", RECENT_WEIGHT).record(metrics.getAllocatedBytes());
+            }
+            
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private Map<String, Double> extractSimpleFeatures(String query, String response) {
-        Map<String, Double> features = new HashMap<>();
-        features.put("query_length", (double) query.length());
-        features.put("response_length", (double) response.length());
-        features.put("has_code", response.contains("{") || response.contains("def ") ? 1.0 : 0.0);
+    private float[] extractSimpleFeatures(String query, String response) {
+        float[] features = new float[FEATURE_COUNT];
+        features[FEATURE_QUERY_LENGTH] = query.length();
+        features[FEATURE_RESPONSE_LENGTH] = response.length();
+        features[FEATURE_HAS_CODE] = response.contains("{") || response.contains("def ") ? 1f : 0f;
         return features;
     }
 
+    public PatternRing getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * One learned interaction, as read back from the {@link PatternRing}. The query
+     * itself is kept only as its hash.
+     */
     static class LearningPattern {
-        String input;
-        String output;
-        Map<String, Double> features;
-        long timestamp;
+        final long sequence;
+        final int inputHash;
+        final long timestamp;
+        final float[] features;
+
+        LearningPattern(long sequence, int inputHash, long timestamp, float[] features) {
+            this.sequence = sequence;
+            this.inputHash = inputHash;
+            this.timestamp = timestamp;
+            this.features = features;
+        }
+
+        float getFeature(int feature) {
+            return features[feature];
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+// PatternRing.java
+package com.aiagent.framework.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity ring of {@link LearningEngine.LearningPattern}s that any number of
+ * threads append to without locking. Once full, each append overwrites the oldest
+ * pattern.
+ *
+ * Patterns are stored column-wise in primitive arrays, one slot per pattern, so a
+ * million patterns with three features take about 32 MB and no per-pattern objects.
+ * Each slot has a stamp that works as a sequence lock: odd while its pattern is
+ * being written, even once published, and unique to the append that wrote it.
+ * Readers check the stamp before and after reading a slot and skip patterns that
+ * were overwritten in between. All fields are atomic-array elements, so that check
+ * is enough to see a consistent pattern.
+ */
+public class PatternRing {
+    public static final int MAX_CAPACITY = 1_000_000;
+
+    private final int capacity;
+    private final int featureCount;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray timestamps;
+    private final AtomicIntegerArray inputHashes;
+    // Float bits, featureCount per slot
+    private final AtomicIntegerArray features;
+
+    public PatternRing(int capacity, int featureCount) {
+        this.capacity = Math.max(1, Math.min(MAX_CAPACITY, capacity));
+        this.featureCount = featureCount;
+        this.stamps = new AtomicLongArray(this.capacity);
+        this.timestamps = new AtomicLongArray(this.capacity);
+        this.inputHashes = new AtomicIntegerArray(this.capacity);
+        this.features = new AtomicIntegerArray(this.capacity * featureCount);
+    }
+
+    /**
+     * Appends a pattern, overwriting the oldest one when full.
+     *
+     * @return the pattern's sequence number
+     */
+    public long add(int inputHash, long timestamp, float[] values) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence % capacity);
+        // The previous lap's writer of this slot is normally long done; only a writer
+        // lapped by the whole ring mid-append makes this wait
+        long previous = sequence < capacity ? 0 : published(sequence - capacity);
+        while (!stamps.compareAndSet(slot, previous, published(sequence) - 1)) {
+            Thread.yield();
+        }
+        timestamps.set(slot, timestamp);
+        inputHashes.set(slot, inputHash);
+        int base = slot * featureCount;
+        for (int i = 0; i < featureCount; i++) {
+            features.set(base + i, Float.floatToRawIntBits(i < values.length ? values[i] : 0f));
+        }
+        stamps.set(slot, published(sequence));
+        return sequence;
+    }
+
+    /**
+     * The pattern appended as {@code sequence}, or null if it was never written,
+     * is still being written or has been overwritten.
+     */
+    public LearningEngine.LearningPattern get(long sequence) {
+        if (sequence < 0) return null;
+        int slot = (int) (sequence % capacity);
+        long stamp = stamps.get(slot);
+        if (stamp != published(sequence)) {
+            return null;
+        }
+        long timestamp = timestamps.get(slot);
+        int inputHash = inputHashes.get(slot);
+        float[] values = new float[featureCount];
+        int base = slot * featureCount;
+        for (int i = 0; i < featureCount; i++) {
+            values[i] = Float.intBitsToFloat(features.get(base + i));
+        }
+        if (stamps.get(slot) != stamp) {
+            return null;
+        }
+        return new LearningEngine.LearningPattern(sequence, inputHash, timestamp, values);
+    }
+
+    /**
+     * Up to {@code max} of the most recent patterns, oldest first.
+     */
+    public List<LearningEngine.LearningPattern> recent(int max) {
+        long end = nextSequence.get();
+        long start = Math.max(0, end - Math.min(max, capacity));
+        List<LearningEngine.LearningPattern> patterns = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            LearningEngine.LearningPattern pattern = get(sequence);
+            if (pattern != null) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Mean of one feature over the patterns currently held, reading the column
+     * directly. Slots mid-write are skipped.
+     */
+    public double mean(int feature) {
+        long end = nextSequence.get();
+        long start = Math.max(0, end - capacity);
+        double sum = 0;
+        long count = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence % capacity);
+            long stamp = stamps.get(slot);
+            if ((stamp & 1) != 0 || stamp == 0) continue;
+            float value = Float.intBitsToFloat(features.get(slot * featureCount + feature));
+            if (stamps.get(slot) == stamp) {
+                sum += value;
+                count++;
+            }
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getFeatureCount() { return featureCount; }
+
+    /** Patterns currently held, at most the capacity. */
+    public int size() {
+        return (int) Math.min(nextSequence.get(), capacity);
+    }
+
+    /** Patterns ever appended, including overwritten ones. */
+    public long getAppendedCount() {
+        return nextSequence.get();
+    }
+
+    private static long published(long sequence) {
+        return 2 * sequence + 2;
+    }
+}
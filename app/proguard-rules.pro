@@ -18,4 +18,7 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Language backends listed in META-INF/services are instantiated reflectively
+-keep class * implements com.aiagent.framework.core.LanguageExecutorProvider { <init>(); }
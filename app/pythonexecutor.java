@@ -0,0 +1,548 @@
+// PythonRuntime.java
+package com.aiagent.framework.core;
+
+import java.io.Writer;
+
+/**
+ * Embedded Python implementation used by {@link PythonExecutor}. Implementations run
+ * inside this JVM; no external process is started.
+ */
+public interface PythonRuntime {
+    String getName();
+
+    /**
+     * Creates an interpreter. This can be slow (Jython needs over a second the first
+     * time), so interpreters are pooled and reused.
+     */
+    Interpreter newInterpreter() throws Exception;
+
+    interface Interpreter {
+        void setOut(Writer out);
+
+        void setErr(Writer err);
+
+        void set(String name, Object value) throws Exception;
+
+        /** Compiles without running; pass the result to {@link #exec(Object)}. */
+        Object compile(String source) throws Exception;
+
+        void exec(Object compiled) throws Exception;
+
+        /**
+         * Runs trusted setup code with {@code __settrace} bound to the runtime's
+         * {@code sys.settrace}, which snippets themselves are denied. The binding is
+         * removed afterwards.
+         */
+        void execWithTrace(String source) throws Exception;
+
+        /** Drops all globals so the next snippet starts clean. */
+        void reset() throws Exception;
+
+        void close();
+    }
+}
+
+// JythonRuntime.java
+package com.aiagent.framework.core;
+
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * {@link PythonRuntime} backed by Jython, loaded reflectively so the app does not
+ * depend on it. Add {@code org.python:jython-standalone} to enable real Python
+ * execution; without it {@link #isAvailable()} is false.
+ *
+ * Jython runs inside the app's JVM and can reach any Java class, so each
+ * interpreter is locked down before its first snippet:
+ * <ul>
+ *   <li>It gets its own builtins without {@code open}, {@code file},
+ *       {@code execfile}, {@code reload} or {@code input}.</li>
+ *   <li>Its {@code __import__} refuses {@link #BLOCKED_MODULES}: the OS,
+ *       processes, sockets, Java packages and the builtins module itself.</li>
+ *   <li>{@code sys.settrace} and {@code sys.setprofile} are replaced, so a snippet
+ *       cannot remove the executor's budget hook.</li>
+ * </ul>
+ * Common pure-Python modules are imported first, so their own imports of blocked
+ * modules still work.
+ *
+ * This removes the direct routes to the host. It is not a security boundary:
+ * Python introspection can still reach objects that lead out, and limits are
+ * therefore also enforced from outside the interpreter (see {@link PythonExecutor}).
+ * Untrusted code that must be contained needs a separate process.
+ */
+public class JythonRuntime implements PythonRuntime {
+    private static final String INTERPRETER_CLASS = "org.python.util.PythonInterpreter";
+    static final String[] BLOCKED_MODULES = {
+            "os", "posix", "nt", "posixpath", "ntpath", "subprocess", "popen2", "commands", "pty",
+            "socket", "select", "signal", "shutil", "tempfile", "glob", "io", "_io", "fileinput",
+            "pickle", "cPickle", "marshal", "shelve", "imp", "importlib", "pkgutil", "runpy", "zipimport",
+            "thread", "threading", "multiprocessing", "ctypes", "__builtin__", "sys_registry",
+            "java", "javax", "jarray", "jythonlib", "org", "com", "sun", "jdk", "_jython"
+    };
+    // Imported before the guard goes in; later imports of these come from sys.modules
+    private static final String[] PRELOADED_MODULES = {
+            "random", "json", "re", "math", "cmath", "collections", "itertools", "functools", "operator",
+            "string", "heapq", "bisect", "datetime", "time", "decimal", "fractions", "copy", "textwrap",
+            "struct", "array", "unicodedata"
+    };
+    private static final String HARDEN_SOURCE =
+            "import sys as _sys\n"
+            + "for _name in _preloaded:\n"
+            + "    try:\n"
+            + "        __import__(_name)\n"
+            + "    except ImportError:\n"
+            + "        pass\n"
+            + "_real_settrace = _sys.settrace\n"
+            + "def _make_import(real_import, blocked):\n"
+            + "    def __import__(name, globals=None, locals=None, fromlist=None, level=-1):\n"
+            + "        if name.partition('.')[0] in blocked:\n"
+            + "            raise ImportError('import of ' + name + ' is not allowed')\n"
+            + "        return real_import(name, globals, locals, fromlist, level)\n"
+            + "    return __import__\n"
+            + "def _refuse(*args):\n"
+            + "    raise RuntimeError('not allowed in snippets')\n"
+            + "_safe = _sys.builtins.copy()\n"
+            + "for _name in ('open', 'file', 'execfile', 'reload', 'input', 'raw_input'):\n"
+            + "    _safe.pop(_name, None)\n"
+            + "_blocked = frozenset(_blocked_modules)\n"
+            + "_safe['__import__'] = _make_import(_safe['__import__'], _blocked)\n"
+            + "_sys.builtins = _safe\n"
+            + "_sys.settrace = _sys.setprofile = _refuse\n"
+            // The interpreter itself looks __builtin__ up in sys.modules
+            + "for _name in list(_sys.modules):\n"
+            + "    if _name != '__builtin__' and _name.partition('.')[0] in _blocked:\n"
+            + "        del _sys.modules[_name]\n";
+
+    public static boolean isAvailable() {
+        try {
+            Class.forName(INTERPRETER_CLASS);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "jython";
+    }
+
+    @Override
+    public Interpreter newInterpreter() throws Exception {
+        return new JythonInterpreter();
+    }
+
+    static class JythonInterpreter implements Interpreter {
+        private final Object interpreter;
+        private final Class<?> stringMapClass;
+        private final Method setOut;
+        private final Method setErr;
+        private final Method set;
+        private final Method compile;
+        private final Method exec;
+        private final Method setLocals;
+        private final Method cleanup;
+        private final Method get;
+        private final Method execSource;
+        // The real sys.settrace, kept out of the snippet's reach
+        private final Object settrace;
+
+        JythonInterpreter() throws Exception {
+            Class<?> type = Class.forName(INTERPRETER_CLASS);
+            Class<?> pyObject = Class.forName("org.python.core.PyObject");
+            Class<?> systemState = Class.forName("org.python.core.PySystemState");
+            this.stringMapClass = Class.forName("org.python.core.PyStringMap");
+            // Own sys state per interpreter; the default shared one would mix sys.stdout across threads
+            this.interpreter = type.getConstructor(pyObject, systemState)
+                    .newInstance(null, systemState.getConstructor().newInstance());
+            this.setOut = type.getMethod("setOut", Writer.class);
+            this.setErr = type.getMethod("setErr", Writer.class);
+            this.set = type.getMethod("set", String.class, Object.class);
+            this.compile = type.getMethod("compile", String.class);
+            this.exec = type.getMethod("exec", pyObject);
+            this.setLocals = type.getMethod("setLocals", pyObject);
+            this.cleanup = type.getMethod("cleanup");
+            this.get = type.getMethod("get", String.class);
+            this.execSource = type.getMethod("exec", String.class);
+            // Future flags carry over to later compiles; snippets expect Python 3 style print(a, b)
+            invoke(execSource, "from __future__ import print_function");
+            invoke(set, "_preloaded", PRELOADED_MODULES);
+            invoke(set, "_blocked_modules", BLOCKED_MODULES);
+            invoke(execSource, HARDEN_SOURCE);
+            this.settrace = invoke(get, "_real_settrace");
+            reset();
+        }
+
+        @Override
+        public void setOut(Writer out) {
+            invokeQuietly(setOut, out);
+        }
+
+        @Override
+        public void setErr(Writer err) {
+            invokeQuietly(setErr, err);
+        }
+
+        @Override
+        public void set(String name, Object value) throws Exception {
+            invoke(set, name, value);
+        }
+
+        @Override
+        public Object compile(String source) throws Exception {
+            return invoke(compile, source);
+        }
+
+        @Override
+        public void exec(Object compiled) throws Exception {
+            invoke(exec, compiled);
+        }
+
+        @Override
+        public void execWithTrace(String source) throws Exception {
+            invoke(set, "__settrace", settrace);
+            try {
+                invoke(execSource, source);
+            } finally {
+                invoke(execSource, "globals().pop('__settrace', None)");
+            }
+        }
+
+        @Override
+        public void reset() throws Exception {
+            invoke(setLocals, stringMapClass.getConstructor().newInstance());
+        }
+
+        @Override
+        public void close() {
+            invokeQuietly(cleanup);
+        }
+
+        private Object invoke(Method method, Object... args) throws Exception {
+            try {
+                return method.invoke(interpreter, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+
+        private void invokeQuietly(Method method, Object... args) {
+            try {
+                invoke(method, args);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
+
+// PythonExecutor.java
+package com.aiagent.framework.core;
+
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Runs Python snippets on a pooled embedded interpreter with the same limits and
+ * output capture as JavaScript.
+ *
+ * Each snippet runs on its own thread with a trace function installed: every
+ * {@code checkInterval} traced events (roughly lines) it charges an
+ * {@link ExecutionBudget}, which raises once a limit is exceeded. A script that
+ * catches that error gets it again on every following line. The trace function
+ * slows Python down by about 3x.
+ *
+ * The calling thread enforces the wall-clock limit independently of the trace
+ * function. At the deadline it interrupts the snippet thread, which ends blocking
+ * calls such as {@code time.sleep}, then stops it. A thread that survives this is
+ * left to {@link RunawayThreads} and its interpreter is discarded, not returned to
+ * the pool; once too many such threads are alive, Python execution is refused.
+ */
+public class PythonExecutor implements LanguageExecutor {
+    // Installs the budget trace function; it applies to frames started afterwards
+    private static final String GUARD_SOURCE =
+            "def __make_tracer(budget, interval):\n"
+            + "    count = [0]\n"
+            + "    every = [interval]\n"
+            + "    def tracer(frame, event, arg):\n"
+            + "        count[0] += 1\n"
+            + "        if count[0] >= every[0]:\n"
+            + "            charged = count[0]\n"
+            + "            count[0] = 0\n"
+            + "            try:\n"
+            + "                budget.charge(charged)\n"
+            + "            except:\n"
+            + "                every[0] = 1\n"
+            + "                raise\n"
+            + "        return tracer\n"
+            + "    return tracer\n"
+            + "__settrace(__make_tracer(__budget, __interval))\n"
+            + "del __make_tracer, __budget, __interval\n";
+    private static final long STOP_GRACE_MILLIS = 200;
+
+    private final PythonRuntime runtime;
+    private final SandboxLimits limits;
+    private final BlockingQueue<PooledInterpreter> idle;
+
+    public PythonExecutor(PythonRuntime runtime, SandboxLimits limits, int maxIdleInterpreters) {
+        this.runtime = runtime;
+        this.limits = limits;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdleInterpreters));
+    }
+
+    public PythonRuntime getRuntime() {
+        return runtime;
+    }
+
+    @Override
+    public CodeExecutionResult execute(String code, ExecutionMetrics metrics) {
+        RunawayThreads runaways = RunawayThreads.get();
+        if (!runaways.hasCapacity(limits.getMaxRunawayThreads())) {
+            return new CodeExecutionResult(false, "Python execution disabled: " + runaways.getCount()
+                    + " earlier snippets could not be stopped and are still running");
+        }
+        PooledInterpreter pooled;
+        try {
+            pooled = acquire();
+        } catch (Exception e) {
+            return new CodeExecutionResult(false, "Python runtime unavailable: " + e.getMessage());
+        }
+
+        ConsoleCapture output = new ConsoleCapture(limits.getRetainedOutputChars());
+        CaptureWriter writer = new CaptureWriter(output, limits.getMaxOutputChars());
+        PythonRuntime.Interpreter interpreter = pooled.interpreter;
+        boolean reusable = false;
+        boolean abandoned = false;
+        long compileStart = System.nanoTime();
+        try {
+            interpreter.reset();
+            interpreter.setOut(writer);
+            interpreter.setErr(writer);
+            Object compiled;
+            try {
+                compiled = interpreter.compile(code);
+            } finally {
+                metrics.setCompileNanos(System.nanoTime() - compileStart);
+            }
+
+            long runStart = System.nanoTime();
+            SnippetThread runner = new SnippetThread(interpreter, compiled, limits);
+            RunOutcome outcome = supervise(runner);
+            metrics.setRunNanos(System.nanoTime() - runStart);
+            if (runner.allocatedBytes >= 0) {
+                metrics.setAllocatedBytes(runner.allocatedBytes);
+            }
+            // A stop can land mid-bytecode and leave the interpreter half-updated
+            reusable = outcome == RunOutcome.ENDED;
+            abandoned = outcome == RunOutcome.ABANDONED;
+
+            ExecutionBudget budget = runner.budget;
+            SandboxViolation violation = budget != null ? budget.getViolation() : null;
+            if (violation == null) violation = writer.violation;
+            if (violation == null && System.nanoTime() - (runStart + limits.getMaxWallTimeMillis() * 1_000_000L) > 0) {
+                // Interrupted out of a blocking call, stopped, or abandoned
+                violation = new SandboxViolation(ExecutionLimit.WALL_CLOCK,
+                        "Exceeded time limit of " + limits.getMaxWallTimeMillis() + " ms");
+            }
+            if (violation != null) {
+                return new CodeExecutionResult(false, output + "Execution stopped: " + violation.getMessage(),
+                        violation.getMessage(), violation.getLimit());
+            }
+            if (runner.failure != null) {
+                return new CodeExecutionResult(false, output + "Python error: " + runner.failure.toString().trim());
+            }
+            return new CodeExecutionResult(true, output.isEmpty() ? "(no output)" : output.toString());
+
+        } catch (Exception e) {
+            return new CodeExecutionResult(false, "Python error: " + e.toString().trim());
+        } finally {
+            release(pooled, reusable, abandoned);
+        }
+    }
+
+    private enum RunOutcome {
+        /** The snippet returned or raised by itself, including at the trace deadline. */
+        ENDED,
+        /** Interrupted or stopped from outside; the interpreter may be inconsistent. */
+        STOPPED,
+        /** Could not be stopped and still holds the interpreter. */
+        ABANDONED
+    }
+
+    /**
+     * Runs {@code runner} until it ends or the wall-clock limit passes, then stops it.
+     */
+    private RunOutcome supervise(SnippetThread runner) {
+        runner.start();
+        try {
+            runner.join(limits.getMaxWallTimeMillis());
+            if (!runner.isAlive()) {
+                return RunOutcome.ENDED;
+            }
+            // The trace function raises at the deadline by itself; give it a moment
+            runner.join(STOP_GRACE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!runner.isAlive()) {
+            return RunOutcome.ENDED;
+        }
+        return RunawayThreads.get().terminate(runner, STOP_GRACE_MILLIS) ? RunOutcome.STOPPED : RunOutcome.ABANDONED;
+    }
+
+    @Override
+    public void shutdown() {
+        PooledInterpreter pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.interpreter.close();
+        }
+    }
+
+    private PooledInterpreter acquire() throws Exception {
+        PooledInterpreter pooled = idle.poll();
+        return pooled != null ? pooled : new PooledInterpreter(runtime.newInterpreter());
+    }
+
+    private void release(PooledInterpreter pooled, boolean reusable, boolean abandoned) {
+        if (abandoned) {
+            // Still in use by the runaway thread; the next acquire creates a fresh one
+            return;
+        }
+        // Not reusable after a failed compile or a stopped run
+        if (!reusable || !idle.offer(pooled)) {
+            pooled.interpreter.close();
+        }
+    }
+
+    /**
+     * Jython when it is on the class path, or an explicitly given runtime, which
+     * takes precedence over it.
+     */
+    public static class Provider implements LanguageExecutorProvider {
+        private final PythonRuntime runtime;
+
+        public Provider() {
+            this(null);
+        }
+
+        public Provider(PythonRuntime runtime) {
+            this.runtime = runtime;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "python";
+        }
+
+        @Override
+        public Set<ExecutorCapability> getCapabilities() {
+            return EnumSet.of(ExecutorCapability.TIMEOUTS, ExecutorCapability.POOLING);
+        }
+
+        @Override
+        public int getPriority() {
+            return runtime != null ? PRIORITY_OVERRIDE : PRIORITY_DEFAULT;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return runtime != null || JythonRuntime.isAvailable();
+        }
+
+        @Override
+        public LanguageExecutor create(ExecutorEnvironment environment) {
+            return new PythonExecutor(runtime != null ? runtime : new JythonRuntime(),
+                    environment.getSandboxLimits(), Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    static class PooledInterpreter {
+        final PythonRuntime.Interpreter interpreter;
+
+        PooledInterpreter(PythonRuntime.Interpreter interpreter) {
+            this.interpreter = interpreter;
+        }
+    }
+
+    /**
+     * Runs one compiled snippet under a fresh budget, recording any failure and the
+     * bytes it allocated. The trace function dies with the thread.
+     */
+    static class SnippetThread extends Thread {
+        private final PythonRuntime.Interpreter interpreter;
+        private final Object compiled;
+        private final SandboxLimits limits;
+        volatile ExecutionBudget budget;
+        volatile long allocatedBytes = -1;
+        volatile Throwable failure;
+
+        SnippetThread(PythonRuntime.Interpreter interpreter, Object compiled, SandboxLimits limits) {
+            super("python-snippet");
+            this.interpreter = interpreter;
+            this.compiled = compiled;
+            this.limits = limits;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            AllocationMeter allocationMeter = AllocationMeter.get();
+            long startAllocated = allocationMeter.currentThreadAllocatedBytes();
+            try {
+                budget = new ExecutionBudget(limits);
+                interpreter.set("__budget", budget);
+                interpreter.set("__interval", limits.getCheckInterval());
+                interpreter.execWithTrace(GUARD_SOURCE);
+                interpreter.exec(compiled);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                if (budget != null) budget.disarm();
+                if (startAllocated >= 0) {
+                    allocatedBytes = allocationMeter.currentThreadAllocatedBytes() - startAllocated;
+                }
+            }
+        }
+    }
+
+    /**
+     * Routes interpreter output into a {@link ConsoleCapture} and stops the script
+     * once it has printed more than the output limit.
+     */
+    static class CaptureWriter extends Writer {
+        private final ConsoleCapture capture;
+        private final int maxOutputChars;
+        volatile SandboxViolation violation;
+
+        CaptureWriter(ConsoleCapture capture, int maxOutputChars) {
+            this.capture = capture;
+            this.maxOutputChars = maxOutputChars;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            capture.append(java.nio.CharBuffer.wrap(buffer, offset, length));
+            if (capture.getTotalChars() > maxOutputChars) {
+                SandboxViolation error = new SandboxViolation(ExecutionLimit.OUTPUT,
+                        "Exceeded output limit of " + maxOutputChars + " characters");
+                if (violation == null) violation = error;
+                throw error;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+// ResponseCache.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of agent responses keyed on the normalized query and its intent.
+ * Entries expire after a TTL and the cache is capped by an estimated byte size,
+ * not an entry count, so a few long answers cannot crowd out memory.
+ */
+public class ResponseCache {
+    // Rough per-entry cost of the map node, entry object and key/value headers
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedResponse> entries;
+    private long currentBytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ResponseCache(long ttlMillis, long maxBytes) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized String get(String normalizedQuery, AIAgent.QueryIntent intent) {
+        String key = key(normalizedQuery, intent);
+        CachedResponse cached = entries.get(key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        // Monotonic, so a wall-clock change neither expires nor revives entries
+        if (System.nanoTime() - cached.createdAtNanos > ttlNanos) {
+            remove(key, cached);
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.response;
+    }
+
+    public synchronized void put(String normalizedQuery, AIAgent.QueryIntent intent, String response) {
+        put(normalizedQuery, intent, response, generation);
+    }
+
+    /**
+     * Stores {@code response} unless the cache was cleared after {@code generation}
+     * was read, so an answer computed before a {@link #clear()} is not cached after it.
+     */
+    public synchronized void put(String normalizedQuery, AIAgent.QueryIntent intent, String response,
+                                 long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        String key = key(normalizedQuery, intent);
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * (key.length() + response.length());
+        if (weight > maxBytes) {
+            return;
+        }
+
+        CachedResponse previous = entries.put(key, new CachedResponse(response, weight));
+        if (previous != null) {
+            currentBytes -= previous.weight;
+        }
+        currentBytes += weight;
+
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+        generation++;
+    }
+
+    /** Changes with every {@link #clear()}; see {@link #put(String, AIAgent.QueryIntent, String, long)}. */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Lowercases, trims and collapses whitespace so trivially different
+     * phrasings of the same question share an entry.
+     */
+    public static String normalize(String query) {
+        StringBuilder normalized = new StringBuilder(query.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        // Trailing "?" or "." does not change the question
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == '?' || normalized.charAt(end - 1) == '.'
+                || normalized.charAt(end - 1) == '!')) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    // Statistics
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized long getSizeBytes() { return currentBytes; }
+    public synchronized int getEntryCount() { return entries.size(); }
+
+    private void remove(String key, CachedResponse cached) {
+        entries.remove(key);
+        currentBytes -= cached.weight;
+    }
+
+    private static String key(String normalizedQuery, AIAgent.QueryIntent intent) {
+        return intent.name() + '\u0000' + normalizedQuery;
+    }
+
+    static class CachedResponse {
+        final String response;
+        final long weight;
+        final long createdAtNanos;
+
+        CachedResponse(String response, long weight) {
+            this.response = response;
+            this.weight = weight;
+            this.createdAtNanos = System.nanoTime();
+        }
+    }
+}
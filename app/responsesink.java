@@ -0,0 +1,17 @@
+// ResponseSink.java
+package com.aiagent.framework.core;
+
+/**
+ * Receives a response piece by piece as the agent produces it. Callbacks arrive on
+ * an agent worker thread; UI callers must hop to the main thread themselves.
+ */
+public interface ResponseSink {
+    void onChunk(String chunk);
+
+    /**
+     * @param response the full response, equal to the concatenated chunks
+     */
+    void onComplete(String response);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,107 @@
+// RhinoContextPool.java
+package com.aiagent.framework.core;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reuses Rhino contexts and shares one sealed standard-objects scope.
+ *
+ * Building the standard library with {@code initStandardObjects()} dominated the cost
+ * of short scripts. It is now built once and sealed, so no script can change it,
+ * and each execution only gets a cheap child scope whose prototype is the shared one.
+ *
+ * Idle contexts wait in a bounded pool that any thread takes from, not in thread
+ * locals: with virtual threads every execution runs on a new thread, which would
+ * create a context per execution and keep it as long as the thread lives. A context
+ * is not tied to a thread once exited, so it can be entered by the next one.
+ */
+public class RhinoContextPool {
+    private final ContextFactory factory;
+    private final ScriptableObject sharedScope;
+    private final ArrayBlockingQueue<Context> idle;
+
+    public RhinoContextPool() {
+        this(new ContextFactory());
+    }
+
+    public RhinoContextPool(ContextFactory factory) {
+        this(factory, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param maxIdle contexts kept for reuse; more may be in use at once
+     */
+    public RhinoContextPool(ContextFactory factory, int maxIdle) {
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+        Context cx = factory.enterContext();
+        try {
+            configure(cx);
+            // Safe standard objects leave out LiveConnect, so scripts cannot reach Java classes
+            this.sharedScope = cx.initSafeStandardObjects(null, true);
+        } finally {
+            exit();
+        }
+    }
+
+    /**
+     * Enters an idle pooled context, or a new one if none is idle. A nested call
+     * re-enters the context this thread is already in. Every call must be paired
+     * with {@link #exit()}.
+     */
+    public Context enter() {
+        Context current = Context.getCurrentContext();
+        if (current != null) {
+            return factory.enterContext(current);
+        }
+        Context cx = idle.poll();
+        if (cx == null) {
+            cx = factory.enterContext();
+            configure(cx);
+            return cx;
+        }
+        return factory.enterContext(cx);
+    }
+
+    /**
+     * Leaves the context; the outermost exit returns it to the pool.
+     */
+    public void exit() {
+        Context cx = Context.getCurrentContext();
+        Context.exit();
+        if (cx != null && Context.getCurrentContext() == null) {
+            idle.offer(cx);
+        }
+    }
+
+    /**
+     * Leaves the context without returning it to the pool, for a script that was
+     * stopped part way and may have left it inconsistent.
+     */
+    public void abandon() {
+        Context.exit();
+    }
+
+    // Statistics
+    public int getIdleCount() { return idle.size(); }
+
+    /**
+     * A fresh top-level scope for one execution. Globals a script declares land
+     * here and disappear with it; lookups fall through to the shared scope.
+     */
+    public Scriptable newExecutionScope(Context cx) {
+        Scriptable scope = cx.newObject(sharedScope);
+        scope.setPrototype(sharedScope);
+        scope.setParentScope(null);
+        return scope;
+    }
+
+    protected void configure(Context cx) {
+        cx.setOptimizationLevel(-1); // Interpretive mode
+    }
+}
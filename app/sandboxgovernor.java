@@ -0,0 +1,328 @@
+// SandboxLimits.java
+package com.aiagent.framework.core;
+
+/**
+ * Resource budget for one script execution. A script that exceeds any limit is
+ * stopped and reported with the matching {@link ExecutionLimit}.
+ */
+public class SandboxLimits {
+    private long maxInstructions = 50_000_000L;
+    private long maxWallTimeMillis = 5_000L;
+    private int maxOutputChars = 1024 * 1024;
+    private int retainedOutputChars = 64 * 1024;
+    private long maxAllocatedBytes = 512L * 1024 * 1024;
+    private int checkInterval = 10_000;
+    private int maxRunawayThreads = 4;
+
+    public SandboxLimits setMaxInstructions(long maxInstructions) {
+        this.maxInstructions = maxInstructions;
+        return this;
+    }
+
+    public SandboxLimits setMaxWallTimeMillis(long maxWallTimeMillis) {
+        this.maxWallTimeMillis = maxWallTimeMillis;
+        return this;
+    }
+
+    /**
+     * Total characters a script may print before it is stopped.
+     */
+    public SandboxLimits setMaxOutputChars(int maxOutputChars) {
+        this.maxOutputChars = maxOutputChars;
+        return this;
+    }
+
+    /**
+     * Characters of output kept for the result; older output is dropped first.
+     */
+    public SandboxLimits setRetainedOutputChars(int retainedOutputChars) {
+        this.retainedOutputChars = retainedOutputChars;
+        return this;
+    }
+
+    /**
+     * Bytes the executing thread may allocate, counting garbage as well as live
+     * objects. Only enforced where the runtime reports per-thread allocation
+     * (HotSpot); ignored on Android.
+     */
+    public SandboxLimits setMaxAllocatedBytes(long maxAllocatedBytes) {
+        this.maxAllocatedBytes = maxAllocatedBytes;
+        return this;
+    }
+
+    /**
+     * Instructions between limit checks. Lower values stop runaway scripts sooner
+     * at a small cost to throughput.
+     */
+    public SandboxLimits setCheckInterval(int checkInterval) {
+        this.checkInterval = checkInterval;
+        return this;
+    }
+
+    /**
+     * Snippet threads that could not be stopped, across all executors, after which
+     * no further in-process executions start. See {@link RunawayThreads}.
+     */
+    public SandboxLimits setMaxRunawayThreads(int maxRunawayThreads) {
+        this.maxRunawayThreads = maxRunawayThreads;
+        return this;
+    }
+
+    // Getters
+    public long getMaxInstructions() { return maxInstructions; }
+    public long getMaxWallTimeMillis() { return maxWallTimeMillis; }
+    public int getMaxOutputChars() { return maxOutputChars; }
+    public int getRetainedOutputChars() { return retainedOutputChars; }
+    public long getMaxAllocatedBytes() { return maxAllocatedBytes; }
+    public int getCheckInterval() { return checkInterval; }
+    public int getMaxRunawayThreads() { return maxRunawayThreads; }
+}
+
+// ExecutionLimit.java
+package com.aiagent.framework.core;
+
+/**
+ * Why an execution was stopped by the sandbox.
+ */
+public enum ExecutionLimit {
+    INSTRUCTIONS,
+    WALL_CLOCK,
+    OUTPUT,
+    MEMORY
+}
+
+// SandboxViolation.java
+package com.aiagent.framework.core;
+
+/**
+ * Thrown into a running script when it exceeds a limit. It is an {@link Error} so
+ * that script-level try/catch cannot swallow it.
+ */
+public class SandboxViolation extends Error {
+    private static final long serialVersionUID = 1L;
+
+    private final ExecutionLimit limit;
+
+    public SandboxViolation(ExecutionLimit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    public ExecutionLimit getLimit() {
+        return limit;
+    }
+}
+
+// SandboxContextFactory.java
+package com.aiagent.framework.core;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+/**
+ * Context factory that enforces {@link SandboxLimits}. Rhino calls
+ * {@link #observeInstructionCount} every {@code checkInterval} instructions, in both
+ * interpreted and compiled scripts, and the budget of the current execution is
+ * checked there.
+ *
+ * Executions are bracketed with {@link #begin(Context)} and {@link #end(Context)};
+ * outside of them contexts run unmetered.
+ */
+public class SandboxContextFactory extends ContextFactory {
+    private static final Object BUDGET_KEY = new Object();
+
+    private final SandboxLimits limits;
+
+    public SandboxContextFactory(SandboxLimits limits) {
+        this.limits = limits;
+    }
+
+    public SandboxLimits getLimits() {
+        return limits;
+    }
+
+    public void begin(Context cx) {
+        cx.putThreadLocal(BUDGET_KEY, new ExecutionBudget(limits));
+    }
+
+    public void end(Context cx) {
+        cx.removeThreadLocal(BUDGET_KEY);
+    }
+
+    @Override
+    protected Context makeContext() {
+        Context cx = super.makeContext();
+        cx.setInstructionObserverThreshold(limits.getCheckInterval());
+        // Compiled (tiered-up) scripts only count instructions when generated with this
+        cx.setGenerateObserverCount(true);
+        return cx;
+    }
+
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount) {
+        ExecutionBudget budget = (ExecutionBudget) cx.getThreadLocal(BUDGET_KEY);
+        if (budget != null) {
+            budget.charge(instructionCount);
+        }
+    }
+}
+
+// ExecutionBudget.java
+package com.aiagent.framework.core;
+
+/**
+ * Running totals for one execution, checked against {@link SandboxLimits}. Language
+ * backends call {@link #charge(int)} periodically from the executing thread; it
+ * throws a {@link SandboxViolation} once any limit is exceeded.
+ */
+public class ExecutionBudget {
+    private final SandboxLimits limits;
+    private final AllocationMeter allocationMeter;
+    private final long deadline;
+    private final long startAllocatedBytes;
+    private long instructions;
+    private volatile SandboxViolation violation;
+    private volatile boolean disarmed;
+
+    public ExecutionBudget(SandboxLimits limits) {
+        this.limits = limits;
+        this.allocationMeter = AllocationMeter.get();
+        this.deadline = System.nanoTime() + limits.getMaxWallTimeMillis() * 1_000_000L;
+        this.startAllocatedBytes = allocationMeter.currentThreadAllocatedBytes();
+    }
+
+    public void charge(int instructionCount) {
+        if (disarmed) {
+            return;
+        }
+        instructions += instructionCount;
+        if (instructions > limits.getMaxInstructions()) {
+            fail(ExecutionLimit.INSTRUCTIONS, "Exceeded instruction limit of " + limits.getMaxInstructions());
+        }
+        if (System.nanoTime() - deadline > 0) {
+            fail(ExecutionLimit.WALL_CLOCK, "Exceeded time limit of " + limits.getMaxWallTimeMillis() + " ms");
+        }
+        if (startAllocatedBytes >= 0) {
+            long allocated = allocationMeter.currentThreadAllocatedBytes() - startAllocatedBytes;
+            if (allocated > limits.getMaxAllocatedBytes()) {
+                fail(ExecutionLimit.MEMORY, "Exceeded memory limit of " + limits.getMaxAllocatedBytes() + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Records a violation detected outside {@link #charge(int)}, e.g. by a watchdog.
+     */
+    public void fail(ExecutionLimit limit, String message) {
+        SandboxViolation error = new SandboxViolation(limit, message);
+        if (violation == null) {
+            violation = error;
+        }
+        throw error;
+    }
+
+    /**
+     * Stops enforcing limits, for cleanup code that still runs under the budget's hooks.
+     */
+    public void disarm() {
+        disarmed = true;
+    }
+
+    /**
+     * The first limit exceeded, even if the script caught the error and carried on.
+     */
+    public SandboxViolation getViolation() {
+        return violation;
+    }
+
+    public long getDeadlineNanos() {
+        return deadline;
+    }
+}
+
+// RunawayThreads.java
+package com.aiagent.framework.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Snippet threads that outlived their limits and every attempt to stop them. A
+ * thread is interrupted, then stopped with {@code Thread.stop} where the JDK still
+ * supports it (before JDK 20; never on Android). Code that catches the resulting
+ * error, or a JDK without {@code stop}, leaves the thread running, and the only
+ * remedy then is a new process.
+ *
+ * Such threads keep using CPU, so executors check {@link #hasCapacity(int)} before
+ * starting a snippet and refuse once too many are alive. The count is JVM-wide:
+ * runaway threads compete for the same cores whichever executor left them behind.
+ */
+public class RunawayThreads {
+    private static final RunawayThreads INSTANCE = new RunawayThreads();
+
+    private final List<Thread> threads = new ArrayList<>();
+    private long abandoned;
+
+    public static RunawayThreads get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Interrupts {@code thread} and stops it if it is still running after
+     * {@code graceMillis}. A thread that survives both is recorded as a runaway.
+     *
+     * @return true if the thread has ended
+     */
+    @SuppressWarnings("deprecation")
+    public boolean terminate(Thread thread, long graceMillis) {
+        thread.interrupt();
+        if (awaitEnd(thread, graceMillis)) {
+            return true;
+        }
+        try {
+            Thread.class.getMethod("stop").invoke(thread);
+        } catch (Exception e) {
+            // Unsupported on JDK 20+ and Android
+        }
+        if (awaitEnd(thread, graceMillis)) {
+            return true;
+        }
+        // Keep it from competing with live work
+        thread.setPriority(Thread.MIN_PRIORITY);
+        synchronized (this) {
+            threads.add(thread);
+            abandoned++;
+        }
+        return false;
+    }
+
+    /**
+     * Whether fewer than {@code maxRunaways} abandoned threads are still alive.
+     */
+    public boolean hasCapacity(int maxRunaways) {
+        return getCount() < maxRunaways;
+    }
+
+    /** Abandoned threads still alive. */
+    public synchronized int getCount() {
+        for (Iterator<Thread> it = threads.iterator(); it.hasNext(); ) {
+            if (!it.next().isAlive()) it.remove();
+        }
+        return threads.size();
+    }
+
+    /** Threads ever abandoned, including those that later ended. */
+    public synchronized long getAbandonedCount() {
+        return abandoned;
+    }
+
+    private static boolean awaitEnd(Thread thread, long millis) {
+        try {
+            thread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+}
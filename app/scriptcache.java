@@ -0,0 +1,167 @@
+// ScriptCache.java
+package com.aiagent.framework.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+
+/**
+ * LRU cache of compiled Rhino scripts keyed by a SHA-256 of the source, bounded by
+ * an estimated memory budget. Re-running a snippet skips parsing entirely.
+ *
+ * Scripts start out interpreted. Once a script has run {@code tierUpThreshold} times
+ * it is recompiled with the optimizing compiler, where the runtime can load the
+ * generated JVM bytecode (not on Android's ART/Dalvik).
+ */
+public class ScriptCache {
+    // Interpreter bytecode, constant tables and source text, relative to source chars
+    private static final int BYTES_PER_SOURCE_CHAR = 8;
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+    private static final int OPTIMIZED_LEVEL = 9;
+
+    private final long maxBytes;
+    private final int tierUpThreshold;
+    private final boolean optimizerAvailable;
+    private final LinkedHashMap<String, CachedScript> scripts;
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long tierUps;
+
+    public ScriptCache(long maxBytes, int tierUpThreshold) {
+        this.maxBytes = maxBytes;
+        this.tierUpThreshold = tierUpThreshold;
+        this.optimizerAvailable = isOptimizerAvailable();
+        this.scripts = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached script for {@code source}, compiling it with {@code cx} on a miss.
+     * Compile errors propagate as the usual {@code RhinoException}s.
+     */
+    public Script getOrCompile(Context cx, String source, String sourceName) {
+        String key = hash(source);
+        CachedScript cached;
+        boolean tierUp = false;
+        synchronized (this) {
+            cached = scripts.get(key);
+            if (cached != null) {
+                hits++;
+                cached.executions++;
+                tierUp = optimizerAvailable && !cached.optimized && cached.executions == tierUpThreshold;
+            } else {
+                misses++;
+            }
+        }
+
+        if (cached == null) {
+            Script script = cx.compileString(source, sourceName, 1, null);
+            put(key, new CachedScript(script, weigh(source), false));
+            return script;
+        }
+        if (tierUp) {
+            Script optimized = compileOptimized(cx, source, sourceName);
+            if (optimized != null) {
+                synchronized (this) {
+                    cached.script = optimized;
+                    cached.optimized = true;
+                    tierUps++;
+                }
+                return optimized;
+            }
+        }
+        return cached.script;
+    }
+
+    public synchronized void clear() {
+        scripts.clear();
+        currentBytes = 0;
+    }
+
+    // Statistics
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized long getTierUpCount() { return tierUps; }
+    public synchronized long getSizeBytes() { return currentBytes; }
+    public boolean isOptimizerEnabled() { return optimizerAvailable; }
+
+    private synchronized void put(String key, CachedScript script) {
+        if (script.weight > maxBytes) {
+            return;
+        }
+        CachedScript previous = scripts.put(key, script);
+        if (previous != null) {
+            currentBytes -= previous.weight;
+        }
+        currentBytes += script.weight;
+
+        Iterator<Map.Entry<String, CachedScript>> eldest = scripts.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private Script compileOptimized(Context cx, String source, String sourceName) {
+        int previousLevel = cx.getOptimizationLevel();
+        try {
+            cx.setOptimizationLevel(OPTIMIZED_LEVEL);
+            return cx.compileString(source, sourceName, 1, null);
+        } catch (RuntimeException e) {
+            // Some scripts exceed JVM method limits; the interpreted version keeps working
+            return null;
+        } finally {
+            cx.setOptimizationLevel(previousLevel);
+        }
+    }
+
+    private static long weigh(String source) {
+        return ENTRY_OVERHEAD_BYTES + (long) source.length() * BYTES_PER_SOURCE_CHAR;
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isOptimizerAvailable() {
+        String vm = System.getProperty("java.vm.name", "");
+        if (vm.contains("Dalvik")) {
+            return false;
+        }
+        try {
+            Class.forName("org.mozilla.javascript.optimizer.Codegen");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    static class CachedScript {
+        volatile Script script;
+        final long weight;
+        volatile boolean optimized;
+        int executions;
+
+        CachedScript(Script script, long weight, boolean optimized) {
+            this.script = script;
+            this.weight = weight;
+            this.optimized = optimized;
+            this.executions = 1;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+// SecurityScanner.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+
+/**
+ * Static safety check run before code is executed. The source is read once, left
+ * to right: a small lexer tracks whether each character is code, a string literal
+ * or a comment, and every rule pattern is matched at the same time by one
+ * {@link KeywordAutomaton}. Cost is linear in the source length regardless of how
+ * many rules are configured.
+ *
+ * Each rule has a {@link Scope}, so a call like {@code System.exit} mentioned in a
+ * comment or string is not reported, while a shell command hidden in a string is.
+ */
+public class SecurityScanner {
+    public enum Scope {
+        /** Only outside comments and string literals. */
+        CODE,
+        /** In code or inside string literals, but not in comments. */
+        CODE_AND_STRINGS,
+        /** Anywhere, comments included. */
+        ANYWHERE
+    }
+
+    private static final int REGION_CODE = 0;
+    private static final int REGION_STRING = 1;
+    private static final int REGION_COMMENT = 2;
+
+    private static final int TOKEN_OPERATOR = 0;
+    private static final int TOKEN_OPERAND = 1;
+    private static final int TOKEN_WORD = 2;
+    private static final int TOKEN_CLOSER = 3;
+
+    private static final int SLASH_REGEX = 0;
+    private static final int SLASH_DIVISION = 1;
+    private static final int SLASH_UNKNOWN = 2;
+    // Words after which a JavaScript '/' starts a regex literal rather than dividing
+    private static final Set<String> REGEX_KEYWORDS = new HashSet<>(Arrays.asList(
+            "return", "typeof", "instanceof", "in", "of", "new", "delete", "void", "throw",
+            "case", "do", "else", "yield", "await"));
+
+    private final List<SecurityRule> rules;
+    private final KeywordAutomaton automaton;
+
+    public SecurityScanner(List<SecurityRule> rules) {
+        this.rules = new ArrayList<>(rules);
+        List<String> patterns = new ArrayList<>();
+        for (SecurityRule rule : rules) {
+            patterns.add(rule.pattern);
+        }
+        this.automaton = new KeywordAutomaton(patterns);
+    }
+
+    /**
+     * The rules {@code AIAgent} has always applied, now scoped.
+     */
+    public static SecurityScanner withDefaults() {
+        List<SecurityRule> rules = new ArrayList<>();
+        rules.add(new SecurityRule("runtime-exec", "Runtime.getRuntime()", Scope.CODE, false));
+        rules.add(new SecurityRule("system-exit", "System.exit", Scope.CODE, false));
+        rules.add(new SecurityRule("file-delete", "File.delete", Scope.CODE, false));
+        rules.add(new SecurityRule("shell-rm", "rm -rf", Scope.CODE_AND_STRINGS, false));
+        rules.add(new SecurityRule("shell-del", "del /f", Scope.CODE_AND_STRINGS, false));
+        rules.add(new SecurityRule("shell-format", "format c:", Scope.CODE_AND_STRINGS, false));
+        rules.add(new SecurityRule("process-builder", "ProcessBuilder", Scope.CODE, false));
+        rules.add(new SecurityRule("exec-call", "exec(", Scope.CODE, false));
+        rules.add(new SecurityRule("runtime", "Runtime", Scope.CODE, true));
+        return new SecurityScanner(rules);
+    }
+
+    /**
+     * The first rule violation in {@code code}, or null if it is clean.
+     */
+    public Finding findFirst(String code, String language) {
+        List<Finding> findings = new ArrayList<>(1);
+        scan(code, language, findings, 1);
+        return findings.isEmpty() ? null : findings.get(0);
+    }
+
+    public List<Finding> scanAll(String code, String language) {
+        List<Finding> findings = new ArrayList<>();
+        scan(code, language, findings, Integer.MAX_VALUE);
+        return findings;
+    }
+
+    private void scan(String code, String language, List<Finding> findings, int limit) {
+        String lang = language != null ? language.trim().toLowerCase(Locale.ROOT) : "";
+        String text = code;
+        int[] offsets = null;
+        if (lang.equals("java") && code.indexOf("\\u") >= 0) {
+            // javac applies unicode escapes before it lexes anything, so an escaped
+            // quote ends a string; scan what javac sees and map positions back
+            StringBuilder translated = new StringBuilder(code.length());
+            offsets = new int[code.length() + 1];
+            translateUnicodeEscapes(code, translated, offsets);
+            text = translated.toString();
+        }
+        boolean regexLiterals = lang.equals("javascript") || lang.equals("js");
+        if (!scanScoped(text, offsets, lang.equals("python"), lang.equals("java"), regexLiterals, findings, limit)) {
+            // Literal boundaries are unknown, so every rule applies everywhere
+            findings.clear();
+            scanUnscoped(text, offsets, findings, limit);
+        }
+    }
+
+    /**
+     * Scans with each rule limited to its scope. Returns false, leaving the findings
+     * incomplete, if a {@code /} is met that could start a regex literal or divide.
+     */
+    private boolean scanScoped(String text, int[] offsets, boolean hashComments, boolean textBlocks,
+                               boolean regexLiterals, List<Finding> findings, int limit) {
+        // Python comments start with '#', and '//' there is floor division; Java
+        // text blocks, like Python triple-quoted strings, run across lines
+        int length = text.length();
+
+        // One automaton state per scope: each only sees the regions its rules apply to
+        int codeState = 0;
+        int stringState = 0;
+        int anyState = 0;
+
+        int region = REGION_CODE;
+        boolean blockComment = false;
+        char quote = 0;
+        boolean tripleQuote = false;
+        boolean regexClass = false;
+        int interpolationDepth = 0;
+        int lastToken = TOKEN_OPERATOR;
+        int lastIndex = -1;
+        int line = 1;
+        int lineStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int charRegion = region;
+
+            if (region == REGION_CODE) {
+                if (interpolationDepth > 0 && c == '}' && --interpolationDepth == 0) {
+                    // End of a ${...} expression; back inside the template literal
+                    region = REGION_STRING;
+                    quote = '`';
+                    tripleQuote = false;
+                    codeState = 0;
+                    anyState = automaton.step(anyState, c);
+                    continue;
+                } else if (interpolationDepth > 0 && c == '{') {
+                    interpolationDepth++;
+                } else if (!hashComments && c == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+                    region = charRegion = REGION_COMMENT;
+                    blockComment = false;
+                } else if (!hashComments && c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+                    region = charRegion = REGION_COMMENT;
+                    blockComment = true;
+                    i++;
+                    codeState = stringState = 0;
+                    anyState = automaton.step(automaton.step(anyState, c), '*');
+                    continue;
+                } else if (c == '#' && hashComments) {
+                    region = charRegion = REGION_COMMENT;
+                    blockComment = false;
+                } else if (c == '/' && regexLiterals) {
+                    int kind = slashKind(text, lastToken, lastIndex);
+                    if (kind == SLASH_UNKNOWN) return false;
+                    if (kind == SLASH_REGEX) {
+                        // Scanned like a string, so "rm -rf" in a pattern is still found
+                        region = REGION_STRING;
+                        quote = '/';
+                        tripleQuote = false;
+                        regexClass = false;
+                        codeState = 0;
+                        anyState = automaton.step(anyState, c);
+                        continue;
+                    }
+                } else if (textBlocks && text.startsWith("\"\"\"", i) && !opensTextBlock(text, i + 3)) {
+                    // javac rejects a text block opened mid-line; what follows is
+                    // scanned as code rather than as a literal
+                    i += 2;
+                    codeState = stringState = 0;
+                    anyState = automaton.step(automaton.step(automaton.step(anyState, c), c), c);
+                    lastToken = TOKEN_OPERAND;
+                    lastIndex = i;
+                    continue;
+                } else if (c == '"' || c == '\'' || c == '`') {
+                    region = REGION_STRING;
+                    quote = c;
+                    tripleQuote = (hashComments && c != '`' || textBlocks && c == '"') && i + 2 < length
+                            && text.charAt(i + 1) == c && text.charAt(i + 2) == c;
+                    if (tripleQuote) i += 2;
+                    codeState = 0;
+                    anyState = automaton.step(anyState, c);
+                    continue;
+                }
+            } else if (region == REGION_STRING) {
+                if (c == '\\' && i + 1 < length) {
+                    // Escaped character: part of the literal either way
+                    stringState = automaton.step(stringState, c);
+                    anyState = automaton.step(anyState, c);
+                    i++;
+                    c = text.charAt(i);
+                } else if (quote == '`' && c == '$' && i + 1 < length && text.charAt(i + 1) == '{') {
+                    // Template interpolation is code
+                    region = REGION_CODE;
+                    interpolationDepth = 1;
+                    stringState = 0;
+                    anyState = automaton.step(automaton.step(anyState, c), '{');
+                    i++;
+                    continue;
+                } else if (quote == '/' && (c == '[' || c == ']')) {
+                    // A '/' inside a regex character class does not end the literal
+                    regexClass = c == '[';
+                } else if (c == quote && !regexClass && (!tripleQuote || (i + 2 < length
+                        && text.charAt(i + 1) == c && text.charAt(i + 2) == c))) {
+                    if (tripleQuote) i += 2;
+                    region = REGION_CODE;
+                    stringState = 0;
+                    lastToken = TOKEN_OPERAND;
+                    lastIndex = i;
+                    anyState = automaton.step(anyState, c);
+                    continue;
+                } else if (c == '\n' && quote != '`' && !tripleQuote) {
+                    // Unterminated literal; recover at the end of the line
+                    region = charRegion = REGION_CODE;
+                    stringState = 0;
+                }
+            } else if (blockComment && c == '*' && i + 1 < length && text.charAt(i + 1) == '/') {
+                region = REGION_CODE;
+                i++;
+                anyState = 0;
+                continue;
+            } else if (!blockComment && c == '\n') {
+                region = charRegion = REGION_CODE;
+            }
+
+            anyState = automaton.step(anyState, c);
+            if (charRegion == REGION_CODE) {
+                codeState = automaton.step(codeState, c);
+                stringState = automaton.step(stringState, c);
+                if (report(text, offsets, automaton.matchesAt(codeState), Scope.CODE, i, line, lineStart, findings, limit)) return true;
+                if (!Character.isWhitespace(c)) {
+                    lastToken = tokenKind(text, i);
+                    lastIndex = i;
+                }
+            } else if (charRegion == REGION_STRING) {
+                codeState = 0;
+                stringState = automaton.step(stringState, c);
+                if (report(text, offsets, automaton.matchesAt(stringState), Scope.CODE_AND_STRINGS, i, line, lineStart, findings, limit)) return true;
+            } else {
+                codeState = stringState = 0;
+                if (report(text, offsets, automaton.matchesAt(anyState), Scope.ANYWHERE, i, line, lineStart, findings, limit)) return true;
+            }
+
+            if (c == '\n' && !isTranslated(offsets, i)) {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    // Whether only blanks follow a Java text block's opening quotes on their line
+    private static boolean opensTextBlock(String text, int index) {
+        for (int i = index; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') return true;
+            if (c != ' ' && c != '\t' && c != '\f') return false;
+        }
+        return false;
+    }
+
+    private void scanUnscoped(String text, int[] offsets, List<Finding> findings, int limit) {
+        int state = 0;
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = automaton.step(state, c);
+            if (report(text, offsets, automaton.matchesAt(state), Scope.CODE, i, line, lineStart, findings, limit)) return;
+            if (c == '\n' && !isTranslated(offsets, i)) {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    // What the last code token lets a following '/' be, in JavaScript
+    private static int tokenKind(String text, int index) {
+        char c = text.charAt(index);
+        if (Character.isJavaIdentifierPart(c)) return TOKEN_WORD;
+        if (c == '.') return TOKEN_OPERAND;
+        // After a group or block, or a postfix ++/--, either reading is valid JavaScript
+        if (c == ')' || c == ']' || c == '}') return TOKEN_CLOSER;
+        if ((c == '+' || c == '-') && index > 0 && text.charAt(index - 1) == c) return TOKEN_CLOSER;
+        return TOKEN_OPERATOR;
+    }
+
+    private static int slashKind(String text, int lastToken, int lastIndex) {
+        switch (lastToken) {
+            case TOKEN_OPERATOR: return SLASH_REGEX;
+            case TOKEN_OPERAND: return SLASH_DIVISION;
+            case TOKEN_CLOSER: return SLASH_UNKNOWN;
+            default:
+                int start = lastIndex;
+                while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) start--;
+                return REGEX_KEYWORDS.contains(text.substring(start, lastIndex + 1)) ? SLASH_REGEX : SLASH_DIVISION;
+        }
+    }
+
+    /**
+     * Applies Java's unicode escapes to {@code code}. {@code offsets[i]} is where
+     * character {@code i} of the result starts in {@code code}, with one entry more
+     * for the end.
+     */
+    static void translateUnicodeEscapes(String code, StringBuilder out, int[] offsets) {
+        int length = code.length();
+        int backslashes = 0;
+        int i = 0;
+        while (i < length) {
+            char c = code.charAt(i);
+            // Only a backslash not itself escaped by one before it starts an escape
+            if (c == '\\' && backslashes % 2 == 0 && i + 1 < length && code.charAt(i + 1) == 'u') {
+                int digits = i + 1;
+                while (digits < length && code.charAt(digits) == 'u') digits++;
+                if (digits + 4 <= length && isHex(code, digits, digits + 4)) {
+                    offsets[out.length()] = i;
+                    out.append((char) Integer.parseInt(code.substring(digits, digits + 4), 16));
+                    backslashes = 0;
+                    i = digits + 4;
+                    continue;
+                }
+            }
+            offsets[out.length()] = i;
+            out.append(c);
+            backslashes = c == '\\' ? backslashes + 1 : 0;
+            i++;
+        }
+        offsets[out.length()] = length;
+    }
+
+    private static boolean isHex(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isTranslated(int[] offsets, int index) {
+        return offsets != null && offsets[index + 1] - offsets[index] > 1;
+    }
+
+    private static int original(int[] offsets, int index) {
+        return offsets != null ? offsets[index] : index;
+    }
+
+    /**
+     * Reports the matches ending at {@code end} whose rule covers a region of
+     * {@code widest} scope; returns true once {@code limit} findings are collected.
+     * Positions are in {@code text} and reported in the original source.
+     */
+    private boolean report(String text, int[] offsets, int[] matches, Scope widest, int end, int line, int lineStart,
+                           List<Finding> findings, int limit) {
+        for (int id : matches) {
+            SecurityRule rule = rules.get(id);
+            if (rule.scope.ordinal() < widest.ordinal()) continue;
+            int start = end + 1 - automaton.patternLength(id);
+            if (rule.wholeWord && (isWordChar(text, start - 1) || isWordChar(text, end + 1))) continue;
+
+            int offset = original(offsets, start);
+            findings.add(new Finding(rule, line, Math.max(0, offset - original(offsets, lineStart)) + 1, offset));
+            if (findings.size() >= limit) return true;
+        }
+        return false;
+    }
+
+    private static boolean isWordChar(String code, int index) {
+        return index >= 0 && index < code.length() && Character.isJavaIdentifierPart(code.charAt(index));
+    }
+
+    public static class SecurityRule {
+        final String id;
+        final String pattern;
+        final Scope scope;
+        final boolean wholeWord;
+
+        /**
+         * @param pattern matched case-insensitively
+         * @param wholeWord only match when not part of a longer identifier
+         */
+        public SecurityRule(String id, String pattern, Scope scope, boolean wholeWord) {
+            this.id = id;
+            this.pattern = pattern;
+            this.scope = scope;
+            this.wholeWord = wholeWord;
+        }
+
+        public String getId() { return id; }
+        public String getPattern() { return pattern; }
+        public Scope getScope() { return scope; }
+    }
+
+    public static class Finding {
+        private final SecurityRule rule;
+        private final int line;
+        private final int column;
+        private final int offset;
+
+        Finding(SecurityRule rule, int line, int column, int offset) {
+            this.rule = rule;
+            this.line = line;
+            this.column = column;
+            this.offset = offset;
+        }
+
+        public SecurityRule getRule() { return rule; }
+        public int getLine() { return line; }
+        public int getColumn() { return column; }
+        public int getOffset() { return offset; }
+
+        @Override
+        public String toString() {
+            return "\"" + rule.pattern + "\" (" + rule.id + ") at line " + line + ", column " + column;
+        }
+    }
+}
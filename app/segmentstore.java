@@ -0,0 +1,525 @@
+// SegmentStore.java
+package com.aiagent.framework.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Disk-backed key/value store for values that should outlive the heap and the process.
+ *
+ * Values live in one append-only segment file; only an index of key to file position
+ * is kept in memory. Each record is {@code [keyLength][valueLength][type][key][value][crc32]},
+ * and a record torn by a crash is cut off when the file is reopened, as in
+ * {@link KnowledgeJournal}.
+ *
+ * Writes are asynchronous: {@link #put} encodes the value, queues it and returns,
+ * and a single writer thread appends whole batches with one write and one sync.
+ * Until a change is on disk, reads are answered from the queue. Overwritten records
+ * are reclaimed by rewriting the live ones into a fresh file once more than half the
+ * file is dead.
+ */
+public class SegmentStore implements Closeable {
+    private static final int HEADER_SIZE = 9;
+    private static final int CHECKSUM_SIZE = 8;
+    private static final int MAX_BATCH = 256;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private static final byte TYPE_TOMBSTONE = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_JSON_OBJECT = 5;
+    private static final byte TYPE_JSON_ARRAY = 6;
+    private static final byte TYPE_BYTES = 7;
+    private static final byte TYPE_SERIALIZED = 8;
+    private static final byte TYPE_INTEGER = 9;
+
+    // Marks a queued removal; the pending map cannot hold null
+    private static final Change REMOVED = new Change(null, TYPE_TOMBSTONE, new byte[0]);
+    // Wakes the writer on close; compared by identity, so no real key can match it
+    private static final String WAKE = new String("wake");
+
+    private final File file;
+    private final File compactFile;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<String, Change> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<String> dirtyKeys = new LinkedBlockingQueue<>();
+    private final ReentrantReadWriteLock channelLock = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private FileChannel channel;
+    private long fileLength;
+    private long liveBytes;
+    private volatile boolean closed;
+
+    // Guarded by this; lets flush() wait for everything queued before it. Settled
+    // changes were either persisted or failed to write
+    private long queued;
+    private long settled;
+    private long persisted;
+    private long failed;
+    private long batches;
+    private long compactions;
+
+    public SegmentStore(File file) throws IOException {
+        this.file = file;
+        this.compactFile = new File(file.getPath() + ".compact");
+        // Left behind by a compaction that did not finish; the segment itself is intact
+        compactFile.delete();
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        load();
+        this.writer = new Thread(this::writeLoop, "segment-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Whether {@code value} is of a type with an on-disk encoding: strings, numbers,
+     * booleans, org.json values, byte arrays and other {@link Serializable}s. A
+     * serializable object can still fail to encode, for example through a field that
+     * is not serializable; {@link #put} reports that.
+     */
+    public static boolean isStorable(Object value) {
+        return value instanceof String || value instanceof Long || value instanceof Integer
+                || value instanceof Double || value instanceof Boolean || value instanceof JSONObject
+                || value instanceof JSONArray || value instanceof byte[] || value instanceof Serializable;
+    }
+
+    /**
+     * Encodes {@code value} and queues it for writing; returns false, storing nothing,
+     * if it cannot be encoded. Later changes to a mutable value are not stored.
+     */
+    public boolean put(String key, Object value) {
+        if (value == null || !isStorable(value)) {
+            return false;
+        }
+        byte type = typeOf(value);
+        byte[] bytes;
+        try {
+            bytes = encode(type, value);
+        } catch (IOException e) {
+            return false;
+        }
+        enqueue(key, new Change(value, type, bytes));
+        return true;
+    }
+
+    public void remove(String key) {
+        if (index.containsKey(key) || pending.containsKey(key)) {
+            enqueue(key, REMOVED);
+        }
+    }
+
+    public Object get(String key) throws IOException {
+        Change change = pending.get(key);
+        if (change != null) {
+            return change.value;
+        }
+        channelLock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(location.length);
+            // Positional reads do not move the channel, so readers can share it
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+                    throw new EOFException("Truncated record for " + key);
+                }
+            }
+            return decode(location.type, buffer.array());
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        Change change = pending.get(key);
+        return change != null ? change != REMOVED : index.containsKey(key);
+    }
+
+    public Set<String> keys() {
+        Set<String> keys = new HashSet<>(index.keySet());
+        for (Map.Entry<String, Change> change : pending.entrySet()) {
+            if (change.getValue() == REMOVED) keys.remove(change.getKey());
+            else keys.add(change.getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * Blocks until every change queued before this call is on disk or has failed to
+     * write; see {@link #getFailedCount()}.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            long target = queued;
+            while (settled < target && writer.isAlive()) {
+                wait(100);
+            }
+        }
+    }
+
+    // Statistics
+    public int getEntryCount() { return index.size(); }
+    public synchronized long getFileBytes() { return fileLength; }
+    public synchronized long getLiveBytes() { return liveBytes; }
+    public synchronized long getBatchCount() { return batches; }
+    public synchronized long getCompactionCount() { return compactions; }
+    public synchronized long getPersistedCount() { return persisted; }
+    /** Changes lost to write errors; still readable until the key changes again or the store closes. */
+    public synchronized long getFailedCount() { return failed; }
+    public int getPendingCount() { return pending.size(); }
+
+    /**
+     * Writes what is queued and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        // Not interrupt(): an interrupted FileChannel write closes the channel
+        dirtyKeys.add(WAKE);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    private void enqueue(String key, Change value) {
+        if (closed) {
+            throw new IllegalStateException("Segment store is closed");
+        }
+        pending.put(key, value);
+        synchronized (this) {
+            queued++;
+        }
+        dirtyKeys.add(key);
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed || !dirtyKeys.isEmpty()) {
+            try {
+                batch.add(dirtyKeys.take());
+                dirtyKeys.drainTo(batch, MAX_BATCH - 1);
+                batch.removeIf(key -> key == WAKE);
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean written = false;
+            try {
+                writeBatch(batch);
+                written = true;
+                if (shouldCompact()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (!batch.isEmpty()) {
+                    synchronized (this) {
+                        settled += batch.size();
+                        if (written) persisted += batch.size();
+                        else failed += batch.size();
+                        notifyAll();
+                    }
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<String> keys) throws IOException {
+        // A key changed several times in one batch is written once, with its latest value
+        Map<String, Change> changes = new LinkedHashMap<>();
+        for (String key : keys) {
+            Change change = pending.get(key);
+            if (change != null) changes.put(key, change);
+        }
+        if (changes.isEmpty()) return;
+
+        long start;
+        synchronized (this) {
+            start = fileLength;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Map<String, Location> written = new HashMap<>();
+        for (Map.Entry<String, Change> change : changes.entrySet()) {
+            Change value = change.getValue();
+            byte type = value.type;
+            byte[] keyBytes = change.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = value.bytes;
+            long valueOffset = start + bytes.size() + HEADER_SIZE + keyBytes.length;
+            bytes.write(record(type, keyBytes, valueBytes));
+            if (value != REMOVED) {
+                written.put(change.getKey(), new Location(valueOffset, valueBytes.length, type,
+                        HEADER_SIZE + keyBytes.length + valueBytes.length + CHECKSUM_SIZE));
+            }
+        }
+
+        // One write and one sync for the whole batch
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = start;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+
+        long live = 0;
+        for (Map.Entry<String, Change> change : changes.entrySet()) {
+            String key = change.getKey();
+            Location location = written.get(key);
+            Location previous = location != null ? index.put(key, location) : index.remove(key);
+            if (previous != null) live -= previous.recordLength;
+            if (location != null) live += location.recordLength;
+            // Keep a newer queued value if one arrived while this batch was written
+            pending.remove(key, change.getValue());
+        }
+        synchronized (this) {
+            fileLength = position;
+            liveBytes += live;
+            batches++;
+        }
+    }
+
+    private synchronized boolean shouldCompact() {
+        return fileLength > MIN_COMPACTION_BYTES && liveBytes * 2 < fileLength;
+    }
+
+    /**
+     * Rewrites the live records into a fresh file. Runs on the writer thread, so no
+     * appends happen meanwhile; readers keep using the old file until the swap.
+     */
+    private void compact() throws IOException {
+        Map<String, Location> compacted = new HashMap<>();
+        long length = 0;
+        try (FileChannel out = new RandomAccessFile(compactFile, "rw").getChannel()) {
+            out.truncate(0);
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            for (Map.Entry<String, Location> entry : new ArrayList<>(index.entrySet())) {
+                Location location = entry.getValue();
+                ByteBuffer value = ByteBuffer.allocate(location.length);
+                while (value.hasRemaining()) {
+                    if (channel.read(value, location.offset + value.position()) < 0) {
+                        // Never rewrite a partial value under a fresh checksum; keep the old segment
+                        throw new EOFException("Truncated record for " + entry.getKey());
+                    }
+                }
+                byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                long valueOffset = length + chunk.size() + HEADER_SIZE + keyBytes.length;
+                chunk.write(record(location.type, keyBytes, value.array()));
+                compacted.put(entry.getKey(), new Location(valueOffset, location.length, location.type,
+                        location.recordLength));
+                if (chunk.size() >= 64 * 1024) {
+                    length += writeFully(out, chunk.toByteArray(), length);
+                    chunk.reset();
+                }
+            }
+            length += writeFully(out, chunk.toByteArray(), length);
+            out.force(true);
+        }
+
+        channelLock.writeLock().lock();
+        try {
+            channel.close();
+            if (!compactFile.renameTo(file)) {
+                // The old segment is still valid; carry on with it
+                channel = new RandomAccessFile(file, "rw").getChannel();
+                throw new IOException("Cannot replace " + file);
+            }
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            index.putAll(compacted);
+            synchronized (this) {
+                fileLength = length;
+                liveBytes = length;
+                compactions++;
+            }
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    private static long writeFully(FileChannel out, byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+        return bytes.length;
+    }
+
+    /**
+     * Rebuilds the index from the segment, stopping at the first torn record.
+     */
+    private void load() throws IOException {
+        long length = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (length - position >= HEADER_SIZE + CHECKSUM_SIZE) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            byte type = header.get();
+            if (keyLength < 0 || valueLength < 0
+                    || (long) keyLength + valueLength > length - position - HEADER_SIZE - CHECKSUM_SIZE) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength + CHECKSUM_SIZE);
+            channel.read(body, position + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 0, HEADER_SIZE);
+            crc.update(body.array(), 0, keyLength + valueLength);
+            if (crc.getValue() != body.getLong(keyLength + valueLength)) {
+                break;
+            }
+
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            int recordLength = HEADER_SIZE + keyLength + valueLength + CHECKSUM_SIZE;
+            Location previous = type == TYPE_TOMBSTONE ? index.remove(key)
+                    : index.put(key, new Location(position + HEADER_SIZE + keyLength, valueLength, type, recordLength));
+            if (previous != null) liveBytes -= previous.recordLength;
+            if (type != TYPE_TOMBSTONE) liveBytes += recordLength;
+            position += recordLength;
+        }
+
+        // Cut off a torn tail so later appends are not hidden behind it
+        if (position < length) {
+            channel.truncate(position);
+        }
+        fileLength = position;
+    }
+
+    private static byte[] record(byte type, byte[] key, byte[] value) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length + CHECKSUM_SIZE);
+        record.putInt(key.length);
+        record.putInt(value.length);
+        record.put(type);
+        record.put(key);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putLong(crc.getValue());
+        return record.array();
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof String) return TYPE_STRING;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof Integer) return TYPE_INTEGER;
+        if (value instanceof Double) return TYPE_DOUBLE;
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        if (value instanceof JSONObject) return TYPE_JSON_OBJECT;
+        if (value instanceof JSONArray) return TYPE_JSON_ARRAY;
+        if (value instanceof byte[]) return TYPE_BYTES;
+        return TYPE_SERIALIZED;
+    }
+
+    private static byte[] encode(byte type, Object value) throws IOException {
+        switch (type) {
+            case TYPE_STRING:
+            case TYPE_JSON_OBJECT:
+            case TYPE_JSON_ARRAY:
+                return value.toString().getBytes(StandardCharsets.UTF_8);
+            case TYPE_LONG:
+                return ByteBuffer.allocate(8).putLong((Long) value).array();
+            case TYPE_INTEGER:
+                return ByteBuffer.allocate(4).putInt((Integer) value).array();
+            case TYPE_DOUBLE:
+                return ByteBuffer.allocate(8).putDouble((Double) value).array();
+            case TYPE_BOOLEAN:
+                return new byte[]{(byte) ((Boolean) value ? 1 : 0)};
+            case TYPE_BYTES:
+                return ((byte[]) value).clone();
+            default:
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                }
+                return bytes.toByteArray();
+        }
+    }
+
+    private static Object decode(byte type, byte[] bytes) throws IOException {
+        try {
+            switch (type) {
+                case TYPE_STRING:
+                    return new String(bytes, StandardCharsets.UTF_8);
+                case TYPE_JSON_OBJECT:
+                    return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+                case TYPE_JSON_ARRAY:
+                    return new JSONArray(new String(bytes, StandardCharsets.UTF_8));
+                case TYPE_LONG:
+                    return ByteBuffer.wrap(bytes).getLong();
+                case TYPE_INTEGER:
+                    return ByteBuffer.wrap(bytes).getInt();
+                case TYPE_DOUBLE:
+                    return ByteBuffer.wrap(bytes).getDouble();
+                case TYPE_BOOLEAN:
+                    return bytes[0] != 0;
+                case TYPE_BYTES:
+                    return bytes;
+                default:
+                    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                        return in.readObject();
+                    }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Cannot decode stored value", e);
+        }
+    }
+
+    // A queued value with its encoding, made when it was put
+    static class Change {
+        final Object value;
+        final byte type;
+        final byte[] bytes;
+
+        Change(Object value, byte type, byte[] bytes) {
+            this.value = value;
+            this.type = type;
+            this.bytes = bytes;
+        }
+    }
+
+    static class Location {
+        final long offset;
+        final int length;
+        final byte type;
+        final int recordLength;
+
+        Location(long offset, int length, byte type, int recordLength) {
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.recordLength = recordLength;
+        }
+    }
+}
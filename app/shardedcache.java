@@ -0,0 +1,591 @@
+// CacheSettings.java
+package com.aiagent.framework.core;
+
+/**
+ * Limits and policy for a {@link ShardedCache}.
+ */
+public class CacheSettings {
+    public enum EvictionPolicy {
+        /** Evict the entry used least recently. */
+        LRU,
+        /** Evict the entry used least often; ties go to the least recently used. */
+        LFU
+    }
+
+    private long maxWeightBytes = 8L * 1024 * 1024;
+    private long ttlMillis = 0;
+    private int shards = defaultShards();
+    private EvictionPolicy policy = EvictionPolicy.LRU;
+
+    /** Total budget in estimated bytes, split evenly across the shards. */
+    public CacheSettings setMaxWeightBytes(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+        return this;
+    }
+
+    /** Time to live after a write; 0 keeps entries until they are evicted. */
+    public CacheSettings setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        return this;
+    }
+
+    /** Rounded up to a power of two. */
+    public CacheSettings setShards(int shards) {
+        this.shards = shards;
+        return this;
+    }
+
+    public CacheSettings setPolicy(EvictionPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    public long getMaxWeightBytes() { return maxWeightBytes; }
+    public long getTtlMillis() { return ttlMillis; }
+    public int getShards() { return shards; }
+    public EvictionPolicy getPolicy() { return policy; }
+
+    // Enough shards that threads rarely meet on the same lock
+    private static int defaultShards() {
+        return Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    }
+}
+
+// ShardedCache.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent cache bounded by estimated bytes rather than entry count.
+ *
+ * Keys are spread over independently locked shards, so threads working on different
+ * keys rarely contend. Each shard owns an equal part of the weight budget and evicts
+ * on its own by the configured {@link CacheSettings.EvictionPolicy}; both policies
+ * are O(1) per operation, amortized for LFU. The entry being stored is never the
+ * one evicted to make room for it. Expired entries are dropped when read and swept from a
+ * shard periodically as it is written. Listeners hear about every entry removed
+ * for size or age, after the shard lock is released.
+ *
+ * Null values are not stored; putting null removes the key.
+ */
+public class ShardedCache<K, V> {
+    public enum RemovalCause {
+        /** Evicted to stay within the weight budget. */
+        SIZE,
+        /** Its time to live ran out. */
+        EXPIRED
+    }
+
+    public interface Weigher<K, V> {
+        /** Estimated bytes held by the entry, including the key. */
+        long weigh(K key, V value);
+    }
+
+    public interface EvictionListener<K, V> {
+        void onEviction(K key, V value, RemovalCause cause);
+    }
+
+    private final Shard<K, V>[] shards;
+    private final int shardMask;
+    private final Weigher<K, V> weigher;
+    private final long defaultTtlNanos;
+    private final List<EvictionListener<K, V>> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public ShardedCache(CacheSettings settings, Weigher<K, V> weigher) {
+        int count = Integer.highestOneBit(Math.max(1, settings.getShards() - 1)) << 1;
+        if (settings.getShards() <= 1) count = 1;
+        // Java cannot create a Shard<K, V>[] directly; every element is filled in below
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Shard<K, V>[] created = new Shard[count];
+        this.shards = created;
+        this.shardMask = count - 1;
+        this.weigher = weigher;
+        this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(settings.getTtlMillis());
+        long shardBudget = Math.max(1, settings.getMaxWeightBytes() / count);
+        // Sweep often enough that expired entries do not linger for long
+        long sweepNanos = defaultTtlNanos > 0 ? Math.max(TimeUnit.SECONDS.toNanos(1), defaultTtlNanos / 4)
+                : TimeUnit.MINUTES.toNanos(1);
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard<>(shardBudget, settings.getPolicy(), sweepNanos);
+        }
+    }
+
+    public void addEvictionListener(EvictionListener<K, V> listener) {
+        listeners.add(listener);
+    }
+
+    public V get(K key) {
+        List<Node<K, V>> expired = null;
+        V value;
+        Shard<K, V> shard = shardFor(key);
+        synchronized (shard) {
+            Node<K, V> node = shard.entries.get(key);
+            if (node == null) {
+                value = null;
+            } else if (node.isExpired(System.nanoTime())) {
+                shard.unlink(node);
+                expired = Collections.singletonList(node);
+                value = null;
+            } else {
+                shard.recordAccess(node);
+                value = node.value;
+            }
+        }
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        notify(expired, RemovalCause.EXPIRED);
+        return value;
+    }
+
+    /**
+     * The value for {@code key}, created by {@code loader} under the shard lock when
+     * absent, so concurrent callers share one instance. Nothing is stored if the
+     * loader returns null or the value is heavier than a shard's budget.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        List<Node<K, V>> evicted = new ArrayList<>(0);
+        List<Node<K, V>> expired = new ArrayList<>(0);
+        V value;
+        boolean hit = false;
+        Shard<K, V> shard = shardFor(key);
+        synchronized (shard) {
+            long now = System.nanoTime();
+            Node<K, V> node = shard.entries.get(key);
+            if (node != null && node.isExpired(now)) {
+                shard.unlink(node);
+                expired.add(node);
+                node = null;
+            }
+            if (node != null) {
+                shard.recordAccess(node);
+                value = node.value;
+                hit = true;
+            } else {
+                value = loader.apply(key);
+                if (value != null) {
+                    long weight = weigher.weigh(key, value);
+                    Node<K, V> added = null;
+                    if (weight <= shard.maxWeight) {
+                        added = new Node<>(key, value, weight, defaultTtlNanos > 0 ? now + defaultTtlNanos : 0);
+                        shard.link(added);
+                    }
+                    shard.sweepIfDue(now, expired);
+                    shard.evictToBudget(evicted, added);
+                }
+            }
+        }
+        (hit ? hits : misses).increment();
+        notify(expired, RemovalCause.EXPIRED);
+        notify(evicted, RemovalCause.SIZE);
+        return value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, -1);
+    }
+
+    /**
+     * Stores {@code value} with its own time to live; 0 means no expiry, a negative
+     * value uses the cache default. An entry heavier than a whole shard's budget is
+     * not cached, and any previous value for the key is dropped.
+     */
+    public void put(K key, V value, long ttlMillis) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        long weight = weigher.weigh(key, value);
+        long ttlNanos = ttlMillis < 0 ? defaultTtlNanos : TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        long now = System.nanoTime();
+
+        List<Node<K, V>> evicted = new ArrayList<>(0);
+        List<Node<K, V>> expired = new ArrayList<>(0);
+        Shard<K, V> shard = shardFor(key);
+        synchronized (shard) {
+            Node<K, V> previous = shard.entries.get(key);
+            if (previous != null) {
+                shard.unlink(previous);
+            }
+            Node<K, V> added = null;
+            if (weight <= shard.maxWeight) {
+                added = new Node<>(key, value, weight, ttlNanos > 0 ? now + ttlNanos : 0);
+                // Overwriting is a use, not a fresh start
+                if (previous != null) added.frequency = previous.frequency;
+                shard.link(added);
+                if (previous != null) shard.recordAccess(added);
+            }
+            shard.sweepIfDue(now, expired);
+            shard.evictToBudget(evicted, added);
+        }
+        notify(expired, RemovalCause.EXPIRED);
+        notify(evicted, RemovalCause.SIZE);
+    }
+
+    public V remove(K key) {
+        Shard<K, V> shard = shardFor(key);
+        synchronized (shard) {
+            Node<K, V> node = shard.entries.get(key);
+            if (node == null) return null;
+            shard.unlink(node);
+            return node.value;
+        }
+    }
+
+    /** Drops everything without notifying listeners. */
+    public void clear() {
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                shard.clear();
+            }
+        }
+    }
+
+    /** Removes all expired entries now instead of waiting for the periodic sweep. */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        for (Shard<K, V> shard : shards) {
+            List<Node<K, V>> expired = new ArrayList<>(0);
+            synchronized (shard) {
+                shard.sweep(now, expired);
+            }
+            notify(expired, RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Evicts down to {@code fraction} of each shard's current weight, e.g. 0.5 to
+     * halve the cache when the system is short of memory.
+     */
+    public void trimTo(double fraction) {
+        trimTo(fraction, key -> false);
+    }
+
+    /**
+     * Like {@link #trimTo(double)}, but never evicts keys {@code pinned} accepts; a
+     * shard made mostly of those stays above the target.
+     */
+    public void trimTo(double fraction, Predicate<? super K> pinned) {
+        for (Shard<K, V> shard : shards) {
+            List<Node<K, V>> evicted = new ArrayList<>(0);
+            synchronized (shard) {
+                shard.evictTo((long) (shard.weight * fraction), evicted, pinned);
+            }
+            notify(evicted, RemovalCause.SIZE);
+        }
+    }
+
+    /** Point-in-time copy of the live entries, for persistence and debugging. */
+    public Map<K, V> snapshot() {
+        Map<K, V> copy = new HashMap<>();
+        long now = System.nanoTime();
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                for (Node<K, V> node : shard.entries.values()) {
+                    if (!node.isExpired(now)) copy.put(node.key, node.value);
+                }
+            }
+        }
+        return copy;
+    }
+
+    // Statistics
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+    public long getExpirationCount() { return expirations.sum(); }
+
+    public long getWeightBytes() {
+        long total = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                total += shard.weight;
+            }
+        }
+        return total;
+    }
+
+    public int getEntryCount() {
+        int total = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                total += shard.entries.size();
+            }
+        }
+        return total;
+    }
+
+    private Shard<K, V> shardFor(Object key) {
+        // Spread the hash so keys differing only in high bits land on different shards
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        hash *= 0x45d9f3b;
+        hash ^= (hash >>> 16);
+        return shards[hash & shardMask];
+    }
+
+    private void notify(List<Node<K, V>> removed, RemovalCause cause) {
+        if (removed == null || removed.isEmpty()) return;
+        (cause == RemovalCause.SIZE ? evictions : expirations).add(removed.size());
+        for (Node<K, V> node : removed) {
+            for (EvictionListener<K, V> listener : listeners) {
+                try {
+                    listener.onEviction(node.key, node.value, cause);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    static class Node<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        final long expiresAt;
+        int frequency = 1;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Doubly linked list with the least recently used node at the head.
+     */
+    static class NodeList<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        boolean isEmpty() {
+            return head == null;
+        }
+
+        void addFirst(Node<K, V> node) {
+            node.prev = null;
+            node.next = head;
+            if (head != null) head.prev = node;
+            else tail = node;
+            head = node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail != null) tail.next = node;
+            else head = node;
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev != null) node.prev.next = node.next;
+            else head = node.next;
+            if (node.next != null) node.next.prev = node.prev;
+            else tail = node.prev;
+            node.prev = node.next = null;
+        }
+    }
+
+    /**
+     * One lock's worth of entries. LRU keeps a single recency list; LFU keeps one
+     * recency list per use count and evicts from the lowest count, which stays O(1)
+     * because counts only ever step up by one.
+     *
+     * LFU counts age: after every few uses per entry, all counts are halved, so an
+     * entry that was popular long ago does not outlive the entries popular now. The
+     * halving visits every entry, at most once per {@link #AGING_USES_PER_ENTRY} uses
+     * per entry.
+     */
+    static class Shard<K, V> {
+        static final int AGING_USES_PER_ENTRY = 16;
+        static final int MIN_AGING_USES = 1024;
+
+        final Map<K, Node<K, V>> entries = new HashMap<>();
+        final long maxWeight;
+        final boolean lfu;
+        final long sweepIntervalNanos;
+        final NodeList<K, V> recency = new NodeList<>();
+        final Map<Integer, NodeList<K, V>> frequencies = new HashMap<>();
+        int minFrequency;
+        long weight;
+        long nextSweep;
+        long usesSinceAging;
+
+        Shard(long maxWeight, CacheSettings.EvictionPolicy policy, long sweepIntervalNanos) {
+            this.maxWeight = maxWeight;
+            this.lfu = policy == CacheSettings.EvictionPolicy.LFU;
+            this.sweepIntervalNanos = sweepIntervalNanos;
+            this.nextSweep = System.nanoTime() + sweepIntervalNanos;
+        }
+
+        void link(Node<K, V> node) {
+            entries.put(node.key, node);
+            weight += node.weight;
+            if (lfu) {
+                frequencies.computeIfAbsent(node.frequency, f -> new NodeList<>()).addLast(node);
+                // A stale minFrequency below every count is repaired by victim()
+                if (entries.size() == 1 || node.frequency < minFrequency) minFrequency = node.frequency;
+            } else {
+                recency.addLast(node);
+            }
+        }
+
+        void unlink(Node<K, V> node) {
+            entries.remove(node.key);
+            weight -= node.weight;
+            if (lfu) {
+                NodeList<K, V> list = frequencies.get(node.frequency);
+                list.remove(node);
+                if (list.isEmpty()) frequencies.remove(node.frequency);
+            } else {
+                recency.remove(node);
+            }
+        }
+
+        void recordAccess(Node<K, V> node) {
+            if (!lfu) {
+                recency.remove(node);
+                recency.addLast(node);
+                return;
+            }
+            NodeList<K, V> list = frequencies.get(node.frequency);
+            list.remove(node);
+            if (list.isEmpty()) {
+                frequencies.remove(node.frequency);
+                if (minFrequency == node.frequency) minFrequency++;
+            }
+            if (node.frequency < Integer.MAX_VALUE) node.frequency++;
+            frequencies.computeIfAbsent(node.frequency, f -> new NodeList<>()).addLast(node);
+            if (++usesSinceAging >= Math.max(MIN_AGING_USES, (long) entries.size() * AGING_USES_PER_ENTRY)) {
+                age();
+            }
+        }
+
+        // Halves every count, keeping the order of entries within each new count
+        private void age() {
+            usesSinceAging = 0;
+            List<Integer> counts = new ArrayList<>(frequencies.keySet());
+            Collections.sort(counts);
+            Map<Integer, NodeList<K, V>> aged = new HashMap<>();
+            for (int count : counts) {
+                NodeList<K, V> list = frequencies.get(count);
+                int halved = Math.max(1, count / 2);
+                NodeList<K, V> target = aged.computeIfAbsent(halved, f -> new NodeList<>());
+                for (Node<K, V> node = list.head; node != null; ) {
+                    Node<K, V> next = node.next;
+                    node.frequency = halved;
+                    target.addLast(node);
+                    node = next;
+                }
+            }
+            frequencies.clear();
+            frequencies.putAll(aged);
+            minFrequency = aged.isEmpty() ? 1 : Collections.min(aged.keySet());
+        }
+
+        /**
+         * Evicts down to the budget, never choosing {@code added}, the entry just stored.
+         */
+        void evictToBudget(List<Node<K, V>> evicted, Node<K, V> added) {
+            if (added == null) {
+                evictTo(maxWeight, evicted);
+                return;
+            }
+            unlink(added);
+            evictTo(maxWeight - added.weight, evicted);
+            link(added);
+        }
+
+        void evictTo(long targetWeight, List<Node<K, V>> evicted) {
+            while (weight > targetWeight && !entries.isEmpty()) {
+                Node<K, V> victim = victim();
+                unlink(victim);
+                evicted.add(victim);
+            }
+        }
+
+        void evictTo(long targetWeight, List<Node<K, V>> evicted, Predicate<? super K> pinned) {
+            List<Node<K, V>> kept = new ArrayList<>(0);
+            long keptWeight = 0;
+            while (weight + keptWeight > targetWeight && !entries.isEmpty()) {
+                Node<K, V> victim = victim();
+                unlink(victim);
+                if (pinned.test(victim.key)) {
+                    kept.add(victim);
+                    keptWeight += victim.weight;
+                } else {
+                    evicted.add(victim);
+                }
+            }
+            // Back at the front of their lists, in their old order
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                Node<K, V> node = kept.get(i);
+                entries.put(node.key, node);
+                weight += node.weight;
+                if (lfu) {
+                    frequencies.computeIfAbsent(node.frequency, f -> new NodeList<>()).addFirst(node);
+                    minFrequency = Math.min(minFrequency, node.frequency);
+                } else {
+                    recency.addFirst(node);
+                }
+            }
+        }
+
+        private Node<K, V> victim() {
+            if (!lfu) return recency.head;
+            NodeList<K, V> list = frequencies.get(minFrequency);
+            if (list == null) {
+                // Removals can leave minFrequency pointing at an emptied count
+                minFrequency = Collections.min(frequencies.keySet());
+                list = frequencies.get(minFrequency);
+            }
+            return list.head;
+        }
+
+        void sweepIfDue(long now, List<Node<K, V>> expired) {
+            if (now - nextSweep >= 0) {
+                sweep(now, expired);
+            }
+        }
+
+        void sweep(long now, List<Node<K, V>> expired) {
+            nextSweep = now + sweepIntervalNanos;
+            int first = expired.size();
+            for (Node<K, V> node : entries.values()) {
+                if (node.isExpired(now)) expired.add(node);
+            }
+            for (int i = first; i < expired.size(); i++) {
+                unlink(expired.get(i));
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            recency.head = recency.tail = null;
+            frequencies.clear();
+            weight = 0;
+        }
+    }
+}
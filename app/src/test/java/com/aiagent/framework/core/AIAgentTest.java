@@ -0,0 +1,258 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AIAgentTest {
+    private File directory;
+    private final List<AIAgent> agents = new ArrayList<>();
+    private AIAgent agent;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("ai-agent").toFile();
+        agent = newAgent(new ExecutionConfig());
+    }
+
+    @After
+    public void tearDown() {
+        for (AIAgent created : agents) {
+            created.shutdown();
+        }
+        directory.delete();
+    }
+
+    private AIAgent newAgent(ExecutionConfig config) throws Exception {
+        File filesDir = Files.createTempDirectory(directory.toPath(), "agent").toFile();
+        AIAgent created = new AIAgent(new TestContext(filesDir), config);
+        agents.add(created);
+        return created;
+    }
+
+    @Test
+    public void registeringAHandlerDropsCachedResponses() {
+        ResponseCache cache = agent.getResponseCache();
+        String query = ResponseCache.normalize("Tell me a joke");
+        cache.put(query, AIAgent.QueryIntent.GENERAL, "an answer from before the handler");
+        assertNotNull(cache.get(query, AIAgent.QueryIntent.GENERAL));
+
+        agent.registerIntentHandler("joke", q -> "a joke");
+
+        assertNull(cache.get(query, AIAgent.QueryIntent.GENERAL));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test(timeout = 30_000)
+    public void batchResultsFollowInputOrder() throws Exception {
+        // Run grouped by language (cobol, javascript, then none), reported as submitted
+        List<CodeExecutionResult> results = agent.executeBatch(Arrays.asList(
+                new CodeJob("'b'", "javascript"),
+                new CodeJob("DISPLAY 'X'.", "cobol"),
+                new CodeJob("'a'", "javascript"),
+                new CodeJob("'c'", "JavaScript")), 2).get();
+
+        assertEquals(4, results.size());
+        assertEquals("Result: b", results.get(0).getOutput());
+        assertEquals("Unsupported language: cobol", results.get(1).getOutput());
+        assertEquals("Result: a", results.get(2).getOutput());
+        assertEquals("Result: c", results.get(3).getOutput());
+    }
+
+    @Test(timeout = 30_000)
+    public void batchJobWithoutALanguageGetsAnErrorResult() throws Exception {
+        List<CodeExecutionResult> results = agent.executeBatch(Arrays.asList(
+                new CodeJob("'a'", null),
+                new CodeJob("'b'", "javascript"))).get();
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Unsupported language: none given", results.get(0).getOutput());
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    @Test(timeout = 30_000)
+    public void violatingJobDoesNotSinkTheBatch() throws Exception {
+        List<CodeExecutionResult> results = agent.executeBatch(Arrays.asList(
+                new CodeJob("'before'", "javascript"),
+                new CodeJob("System.exit(0)", "javascript"),
+                new CodeJob("'after'", "javascript"))).get();
+
+        assertEquals("Result: before", results.get(0).getOutput());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getOutput(), results.get(1).getOutput().startsWith("Code contains unsafe operations"));
+        assertEquals("Result: after", results.get(2).getOutput());
+    }
+
+    @Test(timeout = 30_000)
+    public void rejectedWorkersDoNotSinkTheBatch() throws Exception {
+        // One code thread and no queue: only the first of four workers is admitted
+        AIAgent small = newAgent(new ExecutionConfig().setCodeThreads(1).setCodeQueueCapacity(0));
+        List<CodeJob> jobs = new ArrayList<>();
+        // The first job keeps the admitted worker busy while the others are submitted
+        jobs.add(new CodeJob("var start = Date.now(); while (Date.now() - start < 300) {} 'job 0'", "javascript"));
+        for (int i = 1; i < 6; i++) {
+            jobs.add(new CodeJob("'job " + i + "'", "javascript"));
+        }
+
+        List<CodeExecutionResult> results = small.executeBatch(jobs, 4).get();
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals("Result: job " + i, results.get(i).getOutput());
+        }
+        assertTrue(small.getCodeExecutionExecutor().getRejectedCount() > 0);
+    }
+
+    @Test(timeout = 30_000)
+    public void identicalConcurrentQueriesAreAnsweredOnce() throws Exception {
+        AtomicInteger answered = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        agent.registerIntentHandler("GENERAL", query -> {
+            answered.incrementAndGet();
+            await(release);
+            return "shared answer";
+        });
+
+        int callers = 8;
+        String[] spellings = {"Hello there", "hello   THERE?", " hello there."};
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            String query = spellings[i % spellings.length];
+            Thread thread = new Thread(() -> {
+                await(start);
+                CompletableFuture<String> future = agent.processQuery(query);
+                synchronized (futures) {
+                    futures.add(future);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // One caller giving up does not cancel the shared computation
+        assertTrue(futures.get(0).cancel(true));
+        release.countDown();
+
+        for (int i = 1; i < callers; i++) {
+            assertEquals("shared answer", futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(futures.get(0).isCancelled());
+        assertEquals(1, answered.get());
+    }
+
+    @Test(timeout = 30_000)
+    public void chunksStreamInOrderThenCompleteOnce() throws Exception {
+        agent.registerIntentHandler("GENERAL", query -> "line one\nline two\nline three");
+        RecordingSink sink = new RecordingSink();
+
+        String response = agent.processQueryStreaming("hello there", sink).get();
+
+        assertEquals("line one\nline two\nline three", response);
+        assertEquals(Arrays.asList("chunk:line one\n", "chunk:line two\n", "chunk:line three",
+                "complete:" + response), sink.events());
+    }
+
+    @Test(timeout = 30_000)
+    public void rejectedQueryReportsAnError() throws Exception {
+        // One query thread and no queue, kept busy by the first query
+        AIAgent small = newAgent(new ExecutionConfig().setQueryThreads(1).setQueryQueueCapacity(0));
+        CountDownLatch release = new CountDownLatch(1);
+        small.registerIntentHandler("GENERAL", query -> {
+            await(release);
+            return "late";
+        });
+        CompletableFuture<String> busy = small.processQuery("hello there");
+
+        RecordingSink sink = new RecordingSink();
+        CompletableFuture<String> rejected = small.processQueryStreaming("good evening", sink);
+        try {
+            rejected.get();
+            fail("the second query should have been rejected");
+        } catch (ExecutionException expected) {
+            // Reported to the caller and to the sink alike
+        }
+        assertEquals(1, sink.events().size());
+        assertTrue(sink.events().get(0), sink.events().get(0).startsWith("error:"));
+
+        release.countDown();
+        assertEquals("late", busy.get());
+    }
+
+    @Test(timeout = 30_000)
+    public void coalescedJoinerGetsTheFullResponse() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        agent.registerIntentHandler("GENERAL", query -> {
+            await(release);
+            return "first\nsecond";
+        });
+        RecordingSink leader = new RecordingSink();
+        RecordingSink joiner = new RecordingSink();
+
+        CompletableFuture<String> first = agent.processQueryStreaming("hello there", leader);
+        CompletableFuture<String> second = agent.processQueryStreaming("HELLO THERE", joiner);
+        release.countDown();
+
+        assertEquals("first\nsecond", first.get());
+        assertEquals("first\nsecond", second.get());
+        assertEquals(Arrays.asList("chunk:first\n", "chunk:second", "complete:first\nsecond"), leader.events());
+        // Joined late, so the whole text arrives as one chunk
+        assertEquals(Arrays.asList("chunk:first\nsecond", "complete:first\nsecond"), joiner.events());
+    }
+
+    private static class RecordingSink implements ResponseSink {
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch ended = new CountDownLatch(1);
+
+        @Override
+        public void onChunk(String chunk) {
+            events.add("chunk:" + chunk);
+        }
+
+        @Override
+        public void onComplete(String response) {
+            events.add("complete:" + response);
+            ended.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            events.add("error:" + error);
+            ended.countDown();
+        }
+
+        // Once onComplete or onError has been called; a joiner's may follow its future
+        List<String> events() {
+            await(ended);
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BulkheadExecutorTest {
+
+    @Test
+    public void zeroQueueCapacityRejectsWhileWorkersAreBusy() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("test", 1, 0,
+                ExecutionConfig.RejectionPolicy.ABORT, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            executor.execute(() -> { });
+            fail("a busy executor without a backlog should reject");
+        } catch (RejectedExecutionException expected) {
+            // No queue slot to wait in
+        }
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getQueueDepth());
+
+        release.countDown();
+        executor.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(1, executor.getCompletedCount());
+    }
+
+    @Test
+    public void callerRunsTasksAreCounted() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("test", 1, 0,
+                ExecutionConfig.RejectionPolicy.CALLER_RUNS, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Thread caller = Thread.currentThread();
+        int[] activeDuringRun = new int[1];
+        executor.execute(() -> {
+            assertSame(caller, Thread.currentThread());
+            activeDuringRun[0] = executor.getActiveCount();
+        });
+        assertEquals(2, activeDuringRun[0]);
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals(0, executor.getQueueDepth());
+
+        release.countDown();
+        executor.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(2, executor.getCompletedCount());
+    }
+
+    @Test
+    public void executeOrRejectNeverRunsOnTheCaller() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("test", 1, 0,
+                ExecutionConfig.RejectionPolicy.CALLER_RUNS, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        boolean[] ran = new boolean[1];
+        try {
+            executor.executeOrReject(() -> ran[0] = true);
+            fail("a saturated executor should reject");
+        } catch (RejectedExecutionException expected) {
+            // The caller keeps its own fallback
+        }
+        assertFalse(ran[0]);
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getQueueDepth());
+
+        release.countDown();
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
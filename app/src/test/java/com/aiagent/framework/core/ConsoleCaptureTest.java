@@ -0,0 +1,104 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Output capture: one capture per execution, a bounded ring that keeps the tail,
+ * and the output limit counted over everything printed.
+ */
+public class ConsoleCaptureTest {
+
+    @Test
+    public void ringKeepsTheTailAndMarksTruncation() {
+        ConsoleCapture capture = new ConsoleCapture(10);
+        capture.append("01234");
+        capture.append("56789");
+        assertFalse(capture.isTruncated());
+        assertEquals("0123456789", capture.toString());
+
+        capture.append("abc");
+        assertTrue(capture.isTruncated());
+        assertEquals(3, capture.getDroppedChars());
+        assertEquals(13, capture.getTotalChars());
+        assertEquals("[... 3 earlier characters truncated ...]\n3456789abc", capture.toString());
+    }
+
+    @Test
+    public void appendLargerThanTheRingKeepsItsTail() {
+        ConsoleCapture capture = new ConsoleCapture(4);
+        capture.append("ab");
+        capture.append("0123456789");
+
+        assertEquals(8, capture.getDroppedChars());
+        assertEquals("[... 8 earlier characters truncated ...]\n6789", capture.toString());
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentExecutionsCaptureSeparately() throws Exception {
+        JavaScriptExecutor executor = new JavaScriptExecutor(new SandboxLimits());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<CodeExecutionResult> left = pool.submit(() -> {
+                start.await();
+                return executor.execute("for (var i = 0; i < 500; i++) console.log('left');", new ExecutionMetrics());
+            });
+            Future<CodeExecutionResult> right = pool.submit(() -> {
+                start.await();
+                return executor.execute("for (var i = 0; i < 500; i++) console.log('right');", new ExecutionMetrics());
+            });
+            start.countDown();
+
+            assertOnly("left", left.get());
+            assertOnly("right", right.get());
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void retainedOutputIsTheTailOfWhatWasPrinted() {
+        JavaScriptExecutor executor = new JavaScriptExecutor(new SandboxLimits()
+                .setRetainedOutputChars(14).setMaxOutputChars(1000));
+        CodeExecutionResult result = executor.execute(
+                "for (var i = 0; i < 5; i++) console.log('line ' + i); 'done'", new ExecutionMetrics());
+
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("[... 21 earlier characters truncated ...]\nline 3\nline 4\n\nResult: done",
+                result.getOutput());
+    }
+
+    @Test
+    public void outputLimitCountsDroppedCharacters() {
+        // The ring only holds 20 characters, yet the limit counts everything printed
+        JavaScriptExecutor executor = new JavaScriptExecutor(new SandboxLimits()
+                .setRetainedOutputChars(20).setMaxOutputChars(100));
+        CodeExecutionResult result = executor.execute(
+                "for (var i = 0; i < 1000; i++) console.log('0123456789');", new ExecutionMetrics());
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.OUTPUT, result.getLimitExceeded());
+        assertTrue(result.getOutput(), result.getOutput().startsWith("[... "));
+        assertTrue(result.getOutput(), result.getOutput().contains("Exceeded output limit of 100 characters"));
+    }
+
+    private static void assertOnly(String tag, CodeExecutionResult result) {
+        assertTrue(result.getOutput(), result.isSuccess());
+        String output = result.getOutput();
+        String lines = output.substring(0, output.indexOf("\nResult: "));
+        String[] printed = lines.split("\n");
+        assertEquals(500, printed.length);
+        for (String line : printed) {
+            assertEquals(tag, line);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Budgets and summaries of ConversationBuffer, and follow-up resolution against it.
+ */
+public class ConversationBufferTest {
+
+    private static ConversationBuffer buffer(ConversationSettings settings) {
+        return new ConversationBuffer("s", settings, ConversationSummarizer.firstSentences(), null);
+    }
+
+    @Test
+    public void evictedTurnsAreSummarized() {
+        ConversationBuffer buffer = buffer(new ConversationSettings().setMaxTurns(3));
+        for (int i = 0; i < 5; i++) {
+            buffer.append("Question " + i + "? More.", "Answer " + i + ". More.", "topic" + i);
+        }
+
+        assertEquals(3, buffer.getTurnCount());
+        assertEquals("Question 2? More.", buffer.getTurns().get(0).getQuery());
+        assertEquals("Q: Question 0? A: Answer 0.\nQ: Question 1? A: Answer 1.\n", buffer.getSummary());
+    }
+
+    @Test
+    public void charBudgetKeepsNewestTurn() {
+        ConversationBuffer buffer = buffer(new ConversationSettings().setMaxChars(100).setMaxSummaryChars(120));
+        for (int i = 0; i < 10; i++) {
+            buffer.append("q" + i, new String(new char[40]).replace('\0', 'a'), null);
+        }
+        assertTrue(buffer.getCharCount() <= 100);
+        assertEquals(2, buffer.getTurnCount());
+
+        buffer.append("big", new String(new char[500]).replace('\0', 'b'), null);
+        assertEquals(1, buffer.getTurnCount());
+        assertEquals("big", buffer.getLastTurn().getQuery());
+        // Trimmed from the front at a line boundary
+        assertTrue(buffer.getSummary().length() <= 120);
+        assertTrue(buffer.getSummary().startsWith("Q: "));
+    }
+
+    @Test
+    public void followUpsResolveAgainstTopic() {
+        FollowUpResolver resolver = new FollowUpResolver();
+        ConversationBuffer buffer = buffer(new ConversationSettings());
+        assertNull(resolver.resolve("show me an example", buffer));
+
+        String query = "How do I sort a list in Java?";
+        buffer.append(query, "Use Collections.sort.", FollowUpResolver.extractTopic(query));
+
+        assertEquals(FollowUpResolver.Kind.EXAMPLE, resolver.resolve("Show me an example", buffer).getKind());
+        assertEquals(FollowUpResolver.Kind.REPEAT, resolver.resolve("say that again", buffer).getKind());
+        FollowUpResolver.Resolution reference = resolver.resolve("Is it stable?", buffer);
+        assertEquals("is sort a list in java stable", reference.getRewrittenQuery());
+        FollowUpResolver.Resolution other = resolver.resolve("What about Python?", buffer);
+        assertEquals("sort a list in python", other.getTopic());
+        assertEquals("how do i sort a list in python", other.getRewrittenQuery());
+        assertNull(resolver.resolve("Write a calculator in Kotlin", buffer));
+    }
+
+    @Test
+    public void standaloneQuestionsAreNotFollowUps() {
+        FollowUpResolver resolver = new FollowUpResolver();
+        ConversationBuffer buffer = buffer(new ConversationSettings());
+        String query = "How do I sort a list in Java?";
+        buffer.append(query, "Use Collections.sort.", FollowUpResolver.extractTopic(query));
+
+        assertNull(resolver.resolve("Why does Java use garbage collection?", buffer));
+        assertNull(resolver.resolve("Example of a binary search", buffer));
+        assertNull(resolver.resolve("I think that Kotlin is nice", buffer));
+        assertEquals(FollowUpResolver.Kind.ELABORATE, resolver.resolve("Why?", buffer).getKind());
+        assertEquals(FollowUpResolver.Kind.EXAMPLE, resolver.resolve("Give me an example of that, please", buffer).getKind());
+    }
+}
@@ -0,0 +1,94 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class IntentClassifierTest {
+
+    private static IntentClassifier.IntentRule rule(String name, int priority, float weight, String... keywords) {
+        return new IntentClassifier.IntentRule(name, Arrays.asList(keywords), weight, priority, null);
+    }
+
+    @Test
+    public void higherPriorityWinsOverMoreMatches() {
+        // The old if/else order: code generation before execution before explanation
+        IntentClassifier classifier = IntentClassifier.withDefaults();
+
+        assertEquals("CODE_GENERATION", classifier.classify("how do i run and test this code").getBestLabel());
+        assertEquals("CODE_EXECUTION", classifier.classify("what happens if i run it").getBestLabel());
+        assertEquals("EXPLANATION", classifier.classify("why is the sky blue").getBestLabel());
+        assertEquals("GENERAL", classifier.classify("hello there").getBestLabel());
+    }
+
+    @Test
+    public void equalPrioritiesAreDecidedByWeightThenOrder() {
+        IntentClassifier classifier = new IntentClassifier(Arrays.asList(
+                rule("FIRST", 0, 1.0f, "alpha"),
+                rule("SECOND", 0, 1.0f, "beta", "gamma"),
+                rule("HEAVY", 0, 3.0f, "delta")), "NONE");
+
+        assertEquals("SECOND", classifier.classify("alpha beta gamma").getBestLabel());
+        assertEquals("FIRST", classifier.classify("alpha beta").getBestLabel());
+        assertEquals("HEAVY", classifier.classify("beta gamma delta").getBestLabel());
+
+        IntentClassifier.Result result = classifier.classify("alpha beta gamma");
+        assertEquals(1 / 3f, result.getConfidence("FIRST"), 1e-6);
+        assertEquals(2 / 3f, result.getConfidence("SECOND"), 1e-6);
+        assertEquals(0f, result.getConfidence("HEAVY"), 1e-6);
+    }
+
+    @Test
+    public void keywordsMatchWithinWordsButNotAcrossThem() {
+        IntentClassifier classifier = IntentClassifier.withDefaults();
+
+        // Like the old per-word contains check, a keyword may be part of a longer word
+        assertEquals("CODE_EXECUTION", classifier.classify("Rerunning the suite").getBestLabel());
+        assertEquals("EXPLANATION", classifier.classify("SHOW me").getBestLabel());
+        // but it is never assembled from pieces of two words
+        assertEquals("GENERAL", classifier.classify("ru n co de").getBestLabel());
+        assertEquals(1.0f, classifier.classify("ru n co de").getConfidence("GENERAL"), 1e-6);
+    }
+
+    @Test
+    public void multiWordKeywordsMatchAsAPhrase() {
+        IntentClassifier classifier = new IntentClassifier(Arrays.asList(
+                rule("WEATHER", 0, 1.0f, "will it rain"),
+                rule("RAIN", 0, 1.0f, "rain")), "GENERAL");
+
+        // Both match once here, and the earlier intent wins the tie
+        assertEquals("WEATHER", classifier.classify("Will it RAIN tomorrow?").getBestLabel());
+        // Only "rain" is in this one; the phrase words are not adjacent
+        assertEquals("RAIN", classifier.classify("will the rain stop").getBestLabel());
+    }
+
+    @Test
+    public void labelsComeFromTheShippedConfiguration() throws Exception {
+        IntentClassifier classifier;
+        try (InputStream in = new FileInputStream("src/main/assets/intents.json")) {
+            classifier = IntentClassifier.fromStream(in);
+        }
+
+        IntentClassifier.Result result = classifier.classify("how do i run and test this code");
+        assertEquals("CODE_GENERATION", result.getBestLabel());
+        assertEquals(Arrays.asList("CODE_GENERATION", "CODE_EXECUTION", "EXPLANATION"),
+                Arrays.asList(result.getConfidences().keySet().toArray(new String[0])));
+        assertEquals("GENERAL", classifier.classify("good morning").getBestLabel());
+    }
+
+    @Test
+    public void configuredIntentsCarryTheirResponse() throws Exception {
+        IntentClassifier classifier = IntentClassifier.fromJson("{\"fallback\": \"OTHER\", \"intents\": ["
+                + "{\"name\": \"GREETING\", \"keywords\": [\"hello\", \"good morning\"],"
+                + " \"response\": \"Hi! You said: {query}\"}]}");
+
+        assertEquals("GREETING", classifier.classify("Good morning, agent").getBestLabel());
+        assertEquals("OTHER", classifier.classify("goodbye").getBestLabel());
+        assertEquals("Hi! You said: {query}", classifier.getResponseTemplate("GREETING"));
+        assertNull(classifier.getResponseTemplate("OTHER"));
+    }
+}
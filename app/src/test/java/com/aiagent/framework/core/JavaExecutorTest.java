@@ -0,0 +1,135 @@
+package com.aiagent.framework.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Class detection and the JDK allowlist of the Java backend. Skipped where there is
+ * no JDK compiler.
+ */
+public class JavaExecutorTest {
+    private JavaExecutor executor;
+
+    @Before
+    public void setUp() {
+        InMemoryJavaCompiler compiler = InMemoryJavaCompiler.create();
+        assumeTrue(compiler != null);
+        executor = new JavaExecutor(compiler, new SandboxLimits().setMaxRunawayThreads(100), 8);
+    }
+
+    private CodeExecutionResult run(String code) {
+        return executor.execute(code, new ExecutionMetrics());
+    }
+
+    @Test
+    public void compilerWritesEveryDeclaredClass() throws Exception {
+        Map<String, byte[]> classes = InMemoryJavaCompiler.create().compile("Outer",
+                "public class Outer { class Inner {} Runnable task = new Runnable() { public void run() {} }; }");
+        assertEquals(new HashSet<>(Arrays.asList("Outer", "Outer$Inner", "Outer$1")),
+                classes.keySet());
+    }
+
+    @Test
+    public void snippetCannotDeleteHostFiles() throws Exception {
+        File victim = File.createTempFile("victim", ".txt");
+        victim.deleteOnExit();
+        String path = victim.getAbsolutePath().replace("\\", "\\\\");
+
+        CodeExecutionResult result = run("java.nio.file.Files.delete(java.nio.file.Paths.get(\"" + path + "\"));");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getOutput(), result.getOutput().contains("not available to snippets"));
+        assertTrue(victim.exists());
+    }
+
+    @Test
+    public void reflectionAndProcessesAreRejected() {
+        assertFalse(run("Class.forName(\"java.nio.file.Files\");").isSuccess());
+        assertFalse(run("Runtime.getRuntime().exec(\"ls\");").isSuccess());
+        assertFalse(run("new java.io.PrintStream(\"out.txt\").println(1);").isSuccess());
+        assertFalse(run("new Thread(() -> {}).start();").isSuccess());
+    }
+
+    @Test
+    public void formatterCannotWriteHostFiles() throws Exception {
+        File target = new File(System.getProperty("java.io.tmpdir"), "formatter-" + System.nanoTime() + ".txt");
+        target.deleteOnExit();
+        String path = target.getAbsolutePath().replace("\\", "\\\\");
+
+        CodeExecutionResult result = run("new java.util.Formatter(\"" + path + "\").format(\"x\").close();");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getOutput(), result.getOutput().contains("not available to snippets"));
+        assertFalse(target.exists());
+        assertFalse(run("new java.util.Formatter(new java.io.ByteArrayOutputStream());").isSuccess());
+        assertTrue(run("System.out.println(new java.util.Formatter(new StringBuilder()).format(\"%d\", 7));")
+                .isSuccess());
+    }
+
+    @Test
+    public void scannerCannotReadHostFiles() {
+        assertFalse(SnippetClassPolicy.isMemberAllowed("java/util/Scanner", "<init>", "(Ljava/io/File;)V"));
+        assertFalse(SnippetClassPolicy.isMemberAllowed("java/util/Scanner", "<init>",
+                "(Ljava/nio/file/Path;Ljava/lang/String;)V"));
+        assertFalse(SnippetClassPolicy.isMemberAllowed("java/util/Scanner", "<init>",
+                "(Ljava/nio/channels/ReadableByteChannel;)V"));
+
+        CodeExecutionResult result = run("System.out.println(new java.util.Scanner(\"4 5\").nextInt());");
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("4\n", result.getOutput());
+    }
+
+    @Test
+    public void parallelMapOperationsAreRejected() {
+        String map = "java.util.concurrent.ConcurrentHashMap<String, Integer> m = new java.util.concurrent.ConcurrentHashMap<>();\n"
+                + "m.put(\"a\", 1);\n";
+
+        CodeExecutionResult result = run(map + "m.forEach(1, (k, v) -> System.out.println(k));");
+        assertFalse(result.isSuccess());
+        assertTrue(result.getOutput(), result.getOutput().contains("not available to snippets"));
+        assertFalse(run(map + "System.out.println(m.reduceValues(1, Integer::sum));").isSuccess());
+        assertFalse(run(map + "System.out.println(m.search(1, (k, v) -> k));").isSuccess());
+
+        result = run(map + "m.forEach((k, v) -> System.out.println(k + v));");
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("a1\n", result.getOutput());
+    }
+
+    @Test
+    public void finalizersAreRejected() {
+        CodeExecutionResult result = run("public class Leaky {\n"
+                + "    protected void finalize() { System.out.println(\"late\"); }\n"
+                + "    public static void main(String[] args) { new Leaky(); }\n"
+                + "}");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getOutput(), result.getOutput().contains("Leaky.finalize is not available to snippets"));
+    }
+
+    @Test
+    public void everydaySnippetsStillRun() {
+        CodeExecutionResult result = run("java.util.List<Integer> xs = java.util.Arrays.asList(3, 1, 2);\n"
+                + "xs.stream().sorted().map(x -> \"n\" + x).forEach(System.out::println);\n"
+                + "Thread.sleep(1);\n"
+                + "System.out.println(new java.math.BigInteger(\"2\").pow(70));");
+
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("n1\nn2\nn3\n1180591620717411303424\n", result.getOutput());
+    }
+
+    @Test
+    public void classInStringOrCommentIsNotADeclaration() {
+        CodeExecutionResult result = run("// no class here\nSystem.out.println(\"hello class mates\");");
+
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("hello class mates\n", result.getOutput());
+    }
+}
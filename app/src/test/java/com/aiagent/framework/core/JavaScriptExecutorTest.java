@@ -0,0 +1,67 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Each sandbox limit stops a JavaScript run and is reported as such.
+ */
+public class JavaScriptExecutorTest {
+
+    private static CodeExecutionResult run(SandboxLimits limits, String code) {
+        return new JavaScriptExecutor(limits.setMaxRunawayThreads(100)).execute(code, new ExecutionMetrics());
+    }
+
+    @Test
+    public void instructionLimitStopsALoop() {
+        CodeExecutionResult result = run(new SandboxLimits().setMaxInstructions(100_000).setCheckInterval(1_000),
+                "while (true) {}");
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.INSTRUCTIONS, result.getLimitExceeded());
+    }
+
+    @Test
+    public void timeLimitStopsNativeRegexBacktracking() {
+        // The backtracking happens inside the regex engine, where no instruction is counted
+        long start = System.nanoTime();
+        CodeExecutionResult result = run(new SandboxLimits().setMaxWallTimeMillis(1000),
+                "/^(a+)+$/.test('aaaaaaaaaaaaaaaaaaaaaaaaaa!')");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.WALL_CLOCK, result.getLimitExceeded());
+        assertTrue("took " + millis + " ms", millis < 5000);
+    }
+
+    @Test
+    public void outputLimitStopsAChattyScript() {
+        CodeExecutionResult result = run(new SandboxLimits().setMaxOutputChars(100),
+                "while (true) { console.log('0123456789'); }");
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.OUTPUT, result.getLimitExceeded());
+        assertTrue(result.getOutput(), result.getOutput().startsWith("0123456789\n"));
+    }
+
+    @Test
+    public void memoryLimitStopsAnAllocatingScript() {
+        assumeTrue(AllocationMeter.get().currentThreadAllocatedBytes() >= 0);
+        CodeExecutionResult result = run(new SandboxLimits().setMaxAllocatedBytes(8L * 1024 * 1024)
+                        .setMaxInstructions(Long.MAX_VALUE).setCheckInterval(1_000),
+                "while (true) { var garbage = new Array(1000).join('x'); }");
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.MEMORY, result.getLimitExceeded());
+    }
+
+    @Test
+    public void scriptWithinLimitsSucceeds() {
+        CodeExecutionResult result = run(new SandboxLimits(), "console.log('hi'); 'a' + 'b'");
+
+        assertTrue(result.getOutput(), result.isSuccess());
+        assertEquals("hi\n\nResult: ab", result.getOutput());
+    }
+}
@@ -0,0 +1,163 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for concurrent KnowledgeBase reads against a single writer.
+ */
+public class KnowledgeBaseConcurrencyTest {
+    private static final int PRELOADED = 2_000;
+    private static final int WRITES = 5_000;
+    private static final int READERS = 8;
+
+    private File directory;
+    private KnowledgeBase knowledgeBase;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("knowledge-test").toFile();
+        knowledgeBase = new KnowledgeBase(directory);
+        pool = Executors.newFixedThreadPool(READERS + 1);
+        for (int i = 0; i < PRELOADED; i++) {
+            knowledgeBase.store(preloadedQuery(i), "preloaded answer " + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        knowledgeBase.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void readsStayConsistentWhileWriterIsActive() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger writesDone = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Future<?> writer = pool.submit(() -> {
+            await(start);
+            for (int i = 0; i < WRITES; i++) {
+                knowledgeBase.store(writtenQuery(i), "written answer " + i);
+                writesDone.set(i + 1);
+            }
+        });
+
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            final int seed = r;
+            readers.add(pool.submit(() -> {
+                await(start);
+                int reads = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writesDone.get() < WRITES && failure.get() == null) {
+                    int i = random.nextInt(PRELOADED);
+                    String answer = knowledgeBase.search(preloadedQuery(i));
+                    if (!("preloaded answer " + i).equals(answer)) {
+                        failure.compareAndSet(null, "reader " + seed + " got '" + answer + "' for " + i);
+                    }
+                    String ranked = knowledgeBase.search("configure module" + i);
+                    if (!("preloaded answer " + i).equals(ranked)) {
+                        failure.compareAndSet(null, "reader " + seed + " ranked '" + ranked + "' for " + i);
+                    }
+
+                    // Anything the writer already finished must be visible with its own value
+                    int done = writesDone.get();
+                    if (done > 0) {
+                        int w = random.nextInt(done);
+                        String written = knowledgeBase.search(writtenQuery(w));
+                        if (!("written answer " + w).equals(written)) {
+                            failure.compareAndSet(null, "reader " + seed + " got '" + written + "' for written " + w);
+                        }
+                    }
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        start.countDown();
+        writer.get(60, TimeUnit.SECONDS);
+        int totalReads = 0;
+        for (Future<Integer> reader : readers) {
+            totalReads += reader.get(60, TimeUnit.SECONDS);
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertTrue("readers made no progress", totalReads > 0);
+        assertEquals("written answer " + (WRITES - 1), knowledgeBase.search(writtenQuery(WRITES - 1)));
+    }
+
+    @Test
+    public void readsDoNotBlockOnHeldWriteLock() throws Exception {
+        Future<String> read;
+        // store() serializes on the instance; hold that lock the way a slow writer would
+        synchronized (knowledgeBase) {
+            read = pool.submit(() -> knowledgeBase.search(preloadedQuery(42)));
+            assertEquals("preloaded answer 42", read.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void compactionMovesValuesOffTheHeap() {
+        knowledgeBase.compact();
+        assertEquals(PRELOADED, knowledgeBase.getEntryCount());
+        assertEquals(0, knowledgeBase.getHeapValueCount());
+        assertEquals("preloaded answer 7", knowledgeBase.search(preloadedQuery(7)));
+
+        knowledgeBase.store(preloadedQuery(3), "updated answer");
+        assertEquals(1, knowledgeBase.getHeapValueCount());
+        assertEquals("updated answer", knowledgeBase.search(preloadedQuery(3)));
+    }
+
+    @Test
+    public void writesAreVisibleAfterReload() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            knowledgeBase.store(writtenQuery(i), "written answer " + i);
+        }
+        knowledgeBase.compact();
+        knowledgeBase.store(writtenQuery(100), "written answer 100");
+        knowledgeBase.close();
+
+        knowledgeBase = new KnowledgeBase(directory);
+        assertEquals("preloaded answer 7", knowledgeBase.search(preloadedQuery(7)));
+        assertEquals("written answer 99", knowledgeBase.search(writtenQuery(99)));
+        assertEquals("written answer 100", knowledgeBase.search(writtenQuery(100)));
+    }
+
+    private static String preloadedQuery(int i) {
+        return "how do I configure module" + i + " for release";
+    }
+
+    private static String writtenQuery(int i) {
+        return "explain feature" + i + " in detail";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * The vector fallback of KnowledgeBase.search: paraphrases are answered, near
+ * misses that differ in what they are about are not.
+ */
+public class KnowledgeBaseSearchTest {
+    private File directory;
+    private KnowledgeBase knowledgeBase;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("knowledge-search").toFile();
+        knowledgeBase = new KnowledgeBase(directory);
+        // Enabled first, so every store is embedded as it is made
+        knowledgeBase.enableVectorSearch(new HashingEmbedder(256));
+        knowledgeBase.store("how do i sort a list in java", "Collections.sort(list);");
+        knowledgeBase.store("write a calculator in kotlin", "fun add(a: Int, b: Int) = a + b");
+        knowledgeBase.store("reverse a string in python", "s[::-1]");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void paraphrasesAreAnswered() {
+        assertEquals("Collections.sort(list);", knowledgeBase.search("how do i sort lists in java"));
+        assertEquals("fun add(a: Int, b: Int) = a + b", knowledgeBase.search("kotlin calculater"));
+        assertEquals("s[::-1]", knowledgeBase.search("how to reverse strings in python"));
+    }
+
+    @Test
+    public void nearMissesAreRejected() {
+        assertNull(knowledgeBase.search("how do i sort a list in python"));
+        assertNull(knowledgeBase.search("write a calculator in swift"));
+        assertNull(knowledgeBase.search("reverse a string in javascript"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * BM25 ranking in KnowledgeIndex.bestMatch: term frequency, rarity and
+ * entry length decide between qualifying entries.
+ */
+public class KnowledgeIndexTest {
+
+    @Test
+    public void moreOccurrencesRankHigher() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.add(0, "java tips guide");
+        index.add(1, "java java tips");
+        index.add(2, "python basics");
+
+        assertEquals(1, index.bestMatch("java"));
+    }
+
+    @Test
+    public void rarerTermsRankHigher() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.add(0, "common");
+        index.add(1, "rare");
+        index.add(2, "common words");
+        index.add(3, "common phrases");
+
+        assertEquals(1, index.bestMatch("rare common"));
+    }
+
+    @Test
+    public void shorterEntriesRankHigher() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.add(0, "sort a list quickly in java today");
+        index.add(1, "sort a list");
+
+        assertEquals(1, index.bestMatch("sort"));
+    }
+
+    @Test
+    public void unmatchedQueriesReturnNothing() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        assertEquals(-1, index.bestMatch("java"));
+
+        index.add(0, "sort a list in java");
+        assertEquals(-1, index.bestMatch("python"));
+        assertEquals(-1, index.bestMatch("   "));
+        // Shares a term, but neither side covers the other
+        assertEquals(-1, index.bestMatch("sort python"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replay after a crash: a torn last record is cut off, earlier records survive
+ * and later appends are readable behind them.
+ */
+public class KnowledgeJournalTest {
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("knowledge-journal").toFile();
+        file = new File(directory, "journal.log");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void tornRecordIsCutOffAndLaterAppendsLand() throws Exception {
+        try (KnowledgeJournal journal = new KnowledgeJournal(file)) {
+            journal.append("first", "one");
+            journal.append("second", "two");
+            journal.append("third", "three");
+        }
+        truncateBy(5);
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        try (KnowledgeJournal journal = new KnowledgeJournal(file)) {
+            assertEquals(2, journal.replay(replayed::put));
+            journal.append("fourth", "four");
+        }
+        assertEquals("[first, second]", replayed.keySet().toString());
+
+        replayed.clear();
+        try (KnowledgeJournal journal = new KnowledgeJournal(file)) {
+            assertEquals(3, journal.replay(replayed::put));
+        }
+        assertEquals("[first, second, fourth]", replayed.keySet().toString());
+        assertEquals("four", replayed.get("fourth"));
+    }
+
+    @Test
+    public void tornHeaderIsCutOff() throws Exception {
+        try (KnowledgeJournal journal = new KnowledgeJournal(file)) {
+            journal.append("first", "one");
+        }
+        long intact = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact);
+            raf.writeInt(5);
+        }
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        try (KnowledgeJournal journal = new KnowledgeJournal(file)) {
+            assertEquals(1, journal.replay(replayed::put));
+        }
+        assertEquals("one", replayed.get("first"));
+        assertEquals(intact, file.length());
+    }
+
+    private void truncateBy(int bytes) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - bytes);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LanguageExecutorRegistryTest {
+
+    @Test
+    public void overrideReplacesThePreviousOverride() {
+        LanguageExecutorRegistry registry = new LanguageExecutorRegistry(new ExecutorEnvironment(null, new SandboxLimits()));
+        StubProvider standard = new StubProvider(LanguageExecutorProvider.PRIORITY_DEFAULT, true);
+        registry.register(standard);
+        registry.register(new StubProvider(LanguageExecutorProvider.PRIORITY_OVERRIDE, true));
+        StubProvider latest = new StubProvider(LanguageExecutorProvider.PRIORITY_OVERRIDE, true);
+        registry.register(latest);
+        assertSame(latest.executor, registry.get("Stub"));
+
+        // The replaced override is gone, so an unavailable one falls back to the default
+        registry.register(new StubProvider(LanguageExecutorProvider.PRIORITY_OVERRIDE, false));
+        assertSame(standard.executor, registry.get("stub"));
+        registry.shutdown();
+    }
+
+    @Test
+    public void replacedBackendFinishesRunningExecutionsBeforeShutdown() throws Exception {
+        LanguageExecutorRegistry registry = new LanguageExecutorRegistry(new ExecutorEnvironment(null, new SandboxLimits()));
+        BlockingExecutor blocking = new BlockingExecutor();
+        registry.register(new StubProvider(LanguageExecutorProvider.PRIORITY_DEFAULT, true, blocking));
+
+        AtomicReference<CodeExecutionResult> running = new AtomicReference<>();
+        Thread thread = new Thread(() -> running.set(registry.execute("stub", "slow", new ExecutionMetrics())));
+        thread.start();
+        assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+
+        registry.register(new StubProvider(LanguageExecutorProvider.PRIORITY_OVERRIDE, true));
+        assertEquals("fast", registry.execute("stub", "fast", new ExecutionMetrics()).getOutput());
+        assertFalse(blocking.shutDownWhileRunning);
+        assertEquals(0, blocking.shutdowns);
+
+        blocking.finish.countDown();
+        thread.join();
+        assertEquals("blocking slow", running.get().getOutput());
+        assertEquals(1, blocking.shutdowns);
+        registry.shutdown();
+    }
+
+    private static class BlockingExecutor implements LanguageExecutor {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        volatile boolean running;
+        volatile boolean shutDownWhileRunning;
+        volatile int shutdowns;
+
+        @Override
+        public CodeExecutionResult execute(String code, ExecutionMetrics metrics) {
+            running = true;
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running = false;
+            return new CodeExecutionResult(true, "blocking " + code);
+        }
+
+        @Override
+        public void shutdown() {
+            if (running) shutDownWhileRunning = true;
+            shutdowns++;
+        }
+    }
+
+    private static class StubProvider implements LanguageExecutorProvider {
+        private final int priority;
+        private final boolean available;
+        final LanguageExecutor executor;
+
+        StubProvider(int priority, boolean available) {
+            this(priority, available, (code, metrics) -> new CodeExecutionResult(true, code));
+        }
+
+        StubProvider(int priority, boolean available, LanguageExecutor executor) {
+            this.priority = priority;
+            this.available = available;
+            this.executor = executor;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "stub";
+        }
+
+        @Override
+        public Set<ExecutorCapability> getCapabilities() {
+            return EnumSet.noneOf(ExecutorCapability.class);
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public LanguageExecutor create(ExecutorEnvironment environment) {
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LearningEngineTest {
+
+    @Test
+    public void executionMeasurementsFeedRecentAverages() throws Exception {
+        File directory = Files.createTempDirectory("learning-engine").toFile();
+        MetricsRegistry registry = new MetricsRegistry();
+        LearningEngine engine = new LearningEngine(new TestContext(directory), 16, registry);
+
+        engine.learnFromCodeExecution("print(1)", "Python", result(2_000_000, 4_000_000, 10, -1));
+        engine.learnFromCodeExecution("print(2)", "Python", result(2_000_000, 14_000_000, 20, -1));
+
+        Map<String, MetricsRegistry.MovingAverage> averages = registry.getAverages();
+        assertEquals(2.0, averages.get("code.python.recent_compile_ms").get(), 1e-9);
+        assertEquals(5.0, averages.get("code.python.recent_run_ms").get(), 1e-9);
+        assertEquals(11.0, averages.get("code.python.recent_output_bytes").get(), 1e-9);
+        // Not measured on this runtime, so not averaged as zero
+        assertNull(averages.get("code.python.recent_allocated_bytes"));
+        directory.delete();
+    }
+
+    private static CodeExecutionResult result(long compileNanos, long runNanos, long outputBytes, long allocatedBytes) {
+        CodeExecutionResult result = new CodeExecutionResult(true, "ok");
+        ExecutionMetrics metrics = result.getMetrics();
+        metrics.setCompileNanos(compileNanos);
+        metrics.setRunNanos(runNanos);
+        metrics.setOutputBytes(outputBytes);
+        metrics.setAllocatedBytes(allocatedBytes);
+        return result;
+    }
+}
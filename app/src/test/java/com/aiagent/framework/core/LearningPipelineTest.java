@@ -0,0 +1,123 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LearningPipelineTest {
+    private File directory;
+    private GatedEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("learning-pipeline").toFile();
+        engine = new GatedEngine(new TestContext(directory));
+    }
+
+    @After
+    public void tearDown() {
+        engine.release.countDown();
+        directory.delete();
+    }
+
+    @Test(timeout = 10_000)
+    public void dropNewestRejectsTheSubmittedEvent() throws Exception {
+        LearningPipeline pipeline = newPipeline(LearningPipeline.OverflowPolicy.DROP_NEWEST);
+        fillWhileWorkerIsBusy(pipeline);
+
+        assertFalse(pipeline.submitInteraction("c", "reply"));
+        assertEquals(1, pipeline.getDroppedCount());
+
+        engine.release.countDown();
+        pipeline.flush();
+        assertEquals(Arrays.asList("busy", "a", "b"), engine.learned);
+        assertEquals(3, pipeline.getProcessedCount());
+        pipeline.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void dropOldestMakesRoomForTheSubmittedEvent() throws Exception {
+        LearningPipeline pipeline = newPipeline(LearningPipeline.OverflowPolicy.DROP_OLDEST);
+        fillWhileWorkerIsBusy(pipeline);
+
+        assertTrue(pipeline.submitInteraction("c", "reply"));
+        assertEquals(1, pipeline.getDroppedCount());
+
+        engine.release.countDown();
+        pipeline.flush();
+        assertEquals(Arrays.asList("busy", "b", "c"), engine.learned);
+        assertEquals(3, pipeline.getProcessedCount());
+        pipeline.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void closeLearnsEventsQueuedBehindAFullQueue() throws Exception {
+        LearningPipeline pipeline = newPipeline(LearningPipeline.OverflowPolicy.DROP_NEWEST);
+        fillWhileWorkerIsBusy(pipeline);
+
+        Thread closer = new Thread(pipeline::close);
+        closer.start();
+        // Waiting for the worker, which is still held on its first event
+        while (closer.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        assertFalse(pipeline.submitInteraction("late", "reply"));
+        engine.release.countDown();
+        closer.join();
+
+        assertEquals(Arrays.asList("busy", "a", "b"), engine.learned);
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    private LearningPipeline newPipeline(LearningPipeline.OverflowPolicy policy) {
+        ExecutionConfig config = new ExecutionConfig()
+                .setLearningQueueCapacity(2)
+                .setLearningBatchSize(1)
+                .setLearningOverflowPolicy(policy);
+        return new LearningPipeline(engine, new MetricsRegistry(), config);
+    }
+
+    // Leaves the worker stuck on one event and the queue full behind it
+    private void fillWhileWorkerIsBusy(LearningPipeline pipeline) throws InterruptedException {
+        assertTrue(pipeline.submitInteraction("busy", "reply"));
+        assertTrue(engine.started.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.submitInteraction("a", "reply"));
+        assertTrue(pipeline.submitInteraction("b", "reply"));
+        assertEquals(2, pipeline.getQueueDepth());
+    }
+
+    /**
+     * Records what it learns and holds the worker on the first event until released.
+     */
+    private static class GatedEngine extends LearningEngine {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> learned = Collections.synchronizedList(new ArrayList<>());
+
+        GatedEngine(android.content.Context context) {
+            super(context, 16);
+        }
+
+        @Override
+        public void learnFromInteraction(String query, String response) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            learned.add(query);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Overwrite order of PatternRing and consistency of its reads under concurrent appends.
+ */
+public class PatternRingTest {
+
+    @Test
+    public void oldestPatternsAreOverwritten() {
+        PatternRing ring = new PatternRing(4, 2);
+        for (int i = 0; i < 10; i++) {
+            ring.add(i, 1000 + i, new float[] {i, 2 * i});
+        }
+
+        assertEquals(4, ring.size());
+        assertEquals(10, ring.getAppendedCount());
+        assertNull(ring.get(5));
+        List<LearningEngine.LearningPattern> recent = ring.recent(10);
+        assertEquals(4, recent.size());
+        assertEquals(6, recent.get(0).inputHash);
+        assertEquals(18f, recent.get(3).getFeature(1), 0f);
+        assertEquals(7.5, ring.mean(0), 1e-9);
+    }
+
+    @Test
+    public void concurrentReadsSeeWholePatterns() throws Exception {
+        PatternRing ring = new PatternRing(64, 3);
+        int writers = 8;
+        int perWriter = 50_000;
+        CountDownLatch done = new CountDownLatch(writers);
+        AtomicBoolean torn = new AtomicBoolean();
+        for (int w = 0; w < writers; w++) {
+            new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    // Every field derives from the same value, so a mixed read is visible
+                    int value = (int) (Math.random() * 1_000_000);
+                    ring.add(value, value, new float[] {value, value + 1, value + 2});
+                }
+                done.countDown();
+            }).start();
+        }
+        AtomicLong checked = new AtomicLong();
+        while (done.getCount() > 0) {
+            for (LearningEngine.LearningPattern pattern : ring.recent(64)) {
+                if (pattern.timestamp != pattern.inputHash
+                        || pattern.getFeature(0) != pattern.inputHash
+                        || pattern.getFeature(2) != pattern.inputHash + 2) {
+                    torn.set(true);
+                }
+                checked.incrementAndGet();
+            }
+        }
+
+        assertFalse(torn.get());
+        assertTrue(checked.get() > 0);
+        assertEquals((long) writers * perWriter, ring.getAppendedCount());
+        assertEquals(64, ring.recent(64).size());
+    }
+}
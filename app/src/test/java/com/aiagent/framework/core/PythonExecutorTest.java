@@ -0,0 +1,71 @@
+package com.aiagent.framework.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Limits and lockdown of the Jython backend. Skipped when Jython is not on the
+ * class path.
+ */
+public class PythonExecutorTest {
+    private PythonExecutor executor;
+
+    @Before
+    public void setUp() {
+        assumeTrue(JythonRuntime.isAvailable());
+        SandboxLimits limits = new SandboxLimits().setMaxWallTimeMillis(1000).setMaxRunawayThreads(100);
+        executor = new PythonExecutor(new JythonRuntime(), limits, 1);
+    }
+
+    private CodeExecutionResult run(String code) {
+        return executor.execute(code, new ExecutionMetrics());
+    }
+
+    @Test
+    public void disablingTheTraceDoesNotEscapeTheTimeLimit() {
+        long start = System.nanoTime();
+        CodeExecutionResult result = run("import sys\n"
+                + "try:\n"
+                + "    sys.settrace(None)\n"
+                + "except Exception:\n"
+                + "    pass\n"
+                + "def spin():\n"
+                + "    while True:\n"
+                + "        pass\n"
+                + "spin()\n");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(result.isSuccess());
+        assertEquals(ExecutionLimit.WALL_CLOCK, result.getLimitExceeded());
+        assertTrue("took " + millis + " ms", millis < 5000);
+    }
+
+    @Test
+    public void catchingTheViolationDoesNotEscapeTheTimeLimit() {
+        long start = System.nanoTime();
+        CodeExecutionResult result = run("while True:\n"
+                + "    try:\n"
+                + "        while True:\n"
+                + "            pass\n"
+                + "    except:\n"
+                + "        pass\n");
+
+        // Re-raised on every line, the errors may hit the allocation limit first
+        assertNotNull(result.getLimitExceeded());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+        // The executor still works afterwards
+        assertEquals("ok\n", run("print('ok')").getOutput());
+    }
+
+    @Test
+    public void hostAccessIsRemoved() {
+        assertTrue(run("import os\nos.system('true')").getOutput().contains("import of os is not allowed"));
+        assertTrue(run("import subprocess").getOutput().contains("not allowed"));
+        assertTrue(run("from java.lang import Runtime").getOutput().contains("not allowed"));
+        assertTrue(run("open('/etc/hostname')").getOutput().contains("NameError"));
+        assertTrue(run("import json, random\nprint(json.dumps([random.randint(1, 1)]))").isSuccess());
+    }
+}
@@ -0,0 +1,21 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void answerComputedBeforeAClearIsNotStored() {
+        ResponseCache cache = new ResponseCache(60_000, 1024 * 1024);
+        long generation = cache.getGeneration();
+
+        cache.clear();
+        cache.put("hello", AIAgent.QueryIntent.GENERAL, "stale", generation);
+        assertNull(cache.get("hello", AIAgent.QueryIntent.GENERAL));
+
+        cache.put("hello", AIAgent.QueryIntent.GENERAL, "fresh", cache.getGeneration());
+        assertEquals("fresh", cache.get("hello", AIAgent.QueryIntent.GENERAL));
+    }
+}
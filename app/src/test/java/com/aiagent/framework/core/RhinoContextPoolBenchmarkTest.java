@@ -0,0 +1,66 @@
+package com.aiagent.framework.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares per-execution cost of a fresh context and standard scope (the old
+ * executeJavaScript path) against the pooled context with a shared sealed scope.
+ * Only reports the timings, and only runs with {@code -Pbenchmark}.
+ */
+public class RhinoContextPoolBenchmarkTest {
+    private static final String SNIPPET = "var total = 0; for (var i = 0; i < 10; i++) { total += i; } total";
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void freshScopeAgainstPooledScope() {
+        runFresh(WARMUP);
+        RhinoContextPool pool = new RhinoContextPool();
+        runPooled(pool, WARMUP);
+
+        long freshNanos = runFresh(ITERATIONS);
+        long pooledNanos = runPooled(pool, ITERATIONS);
+
+        System.out.printf("Rhino per execution: fresh scope %.1f us, pooled scope %.1f us%n",
+                freshNanos / 1000.0 / ITERATIONS, pooledNanos / 1000.0 / ITERATIONS);
+    }
+
+    private static long runFresh(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Context cx = Context.enter();
+            try {
+                cx.setOptimizationLevel(-1);
+                Scriptable scope = cx.initStandardObjects();
+                cx.evaluateString(scope, SNIPPET, "bench.js", 1, null);
+            } finally {
+                Context.exit();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runPooled(RhinoContextPool pool, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Context cx = pool.enter();
+            try {
+                Scriptable scope = pool.newExecutionScope(cx);
+                cx.evaluateString(scope, SNIPPET, "bench.js", 1, null);
+            } finally {
+                pool.exit();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,124 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Scriptable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RhinoContextPoolTest {
+
+    @Test
+    public void contextIsReusedAcrossExecutions() {
+        RhinoContextPool pool = new RhinoContextPool();
+        Context first = pool.enter();
+        pool.exit();
+        Context second = pool.enter();
+        pool.exit();
+        assertSame(first, second);
+    }
+
+    @Test
+    public void contextIsReusedByAnotherThread() throws Exception {
+        RhinoContextPool pool = new RhinoContextPool();
+        Context first = pool.enter();
+        pool.exit();
+
+        AtomicReference<Context> second = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            second.set(pool.enter());
+            pool.exit();
+        });
+        thread.start();
+        thread.join();
+        assertSame(first, second.get());
+    }
+
+    @Test
+    public void nestedEnterKeepsTheSameContext() {
+        RhinoContextPool pool = new RhinoContextPool();
+        Context outer = pool.enter();
+        try {
+            assertSame(outer, pool.enter());
+            pool.exit();
+            assertSame(outer, Context.getCurrentContext());
+            assertEquals(0, pool.getIdleCount());
+        } finally {
+            pool.exit();
+        }
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void idleContextsAreBounded() throws Exception {
+        RhinoContextPool pool = new RhinoContextPool(new ContextFactory(), 2);
+        int threads = 4;
+        CountDownLatch entered = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                pool.enter();
+                try {
+                    entered.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    pool.exit();
+                }
+            });
+            workers[i].start();
+        }
+        entered.await();
+        release.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void executionScopesDoNotLeakGlobals() {
+        RhinoContextPool pool = new RhinoContextPool();
+        assertEquals("1", evaluate(pool, "var leaked = 1; leaked"));
+        assertEquals("undefined", evaluate(pool, "typeof leaked"));
+    }
+
+    @Test
+    public void sharedScopeIsSealed() {
+        RhinoContextPool pool = new RhinoContextPool();
+        try {
+            evaluate(pool, "Array.prototype.hijacked = function() { return 1; }");
+            fail("shared standard objects should be sealed");
+        } catch (Exception expected) {
+            // Sealed objects reject writes
+        }
+        assertEquals("undefined", evaluate(pool, "typeof [].hijacked"));
+    }
+
+    @Test
+    public void sharedScopeIsUnchangedByExecutions() {
+        RhinoContextPool pool = new RhinoContextPool();
+        String sharedNames = "Object.getOwnPropertyNames(Object.getPrototypeOf(this)).join()";
+        String before = evaluate(pool, sharedNames);
+        evaluate(pool, "var total = 0; for (var i = 0; i < 10; i++) { total += i; } total");
+        evaluate(pool, "function helper() { return 1; } helper()");
+        assertEquals(before, evaluate(pool, sharedNames));
+        assertTrue(before, before.contains("Array"));
+    }
+
+    private static String evaluate(RhinoContextPool pool, String code) {
+        Context cx = pool.enter();
+        try {
+            Scriptable scope = pool.newExecutionScope(cx);
+            return Context.toString(cx.evaluateString(scope, code, "test.js", 1, null));
+        } finally {
+            pool.exit();
+        }
+    }
+}
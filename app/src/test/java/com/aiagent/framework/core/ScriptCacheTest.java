@@ -0,0 +1,94 @@
+package com.aiagent.framework.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ScriptCacheTest {
+    // 512 bytes of overhead plus 8 per source char, the same for every script below
+    private static final long SCRIPT_WEIGHT = 512 + 8 * "1 + 1".length();
+
+    private Context cx;
+    private Scriptable scope;
+
+    @Before
+    public void setUp() {
+        cx = Context.enter();
+        cx.setOptimizationLevel(-1);
+        scope = cx.initStandardObjects();
+    }
+
+    @After
+    public void tearDown() {
+        Context.exit();
+    }
+
+    @Test
+    public void repeatedSourceIsAHit() {
+        ScriptCache cache = new ScriptCache(1024 * 1024, 10);
+        Script first = cache.getOrCompile(cx, "1 + 1", "a");
+        Script second = cache.getOrCompile(cx, "1 + 1", "b");
+        cache.getOrCompile(cx, "2 + 2", "c");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2 * SCRIPT_WEIGHT, cache.getSizeBytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedScriptIsEvictedWithinBudget() {
+        ScriptCache cache = new ScriptCache(2 * SCRIPT_WEIGHT, 10);
+        cache.getOrCompile(cx, "1 + 1", "a");
+        cache.getOrCompile(cx, "2 + 2", "b");
+        cache.getOrCompile(cx, "1 + 1", "a");
+        cache.getOrCompile(cx, "3 + 3", "c");
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2 * SCRIPT_WEIGHT, cache.getSizeBytes());
+
+        // "1 + 1" was touched last, so "2 + 2" made room and now misses again
+        long misses = cache.getMissCount();
+        cache.getOrCompile(cx, "1 + 1", "a");
+        assertEquals(misses, cache.getMissCount());
+        cache.getOrCompile(cx, "2 + 2", "b");
+        assertEquals(misses + 1, cache.getMissCount());
+        assertTrue(cache.getSizeBytes() <= 2 * SCRIPT_WEIGHT);
+    }
+
+    @Test
+    public void scriptLargerThanTheBudgetIsNotCached() {
+        ScriptCache cache = new ScriptCache(SCRIPT_WEIGHT - 1, 10);
+        cache.getOrCompile(cx, "1 + 1", "a");
+        cache.getOrCompile(cx, "1 + 1", "a");
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void hotScriptIsPromotedOnceAtTheThreshold() {
+        ScriptCache cache = new ScriptCache(1024 * 1024, 3);
+        assumeTrue(cache.isOptimizerEnabled());
+
+        Script interpreted = cache.getOrCompile(cx, "6 * 7", "a");
+        assertSame(interpreted, cache.getOrCompile(cx, "6 * 7", "a"));
+        assertEquals(0, cache.getTierUpCount());
+
+        Script optimized = cache.getOrCompile(cx, "6 * 7", "a");
+        assertNotSame(interpreted, optimized);
+        assertEquals(1, cache.getTierUpCount());
+        assertEquals(-1, cx.getOptimizationLevel());
+        assertEquals(42, ((Number) optimized.exec(cx, scope)).intValue());
+
+        assertSame(optimized, cache.getOrCompile(cx, "6 * 7", "a"));
+        assertEquals(1, cache.getTierUpCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SecurityScannerTest {
+    private final SecurityScanner scanner = SecurityScanner.withDefaults();
+
+    @Test
+    public void callsInCommentsAndStringsAreNotReported() {
+        assertNull(scanner.findFirst("// System.exit(0)\nString s = \"System.exit\";", "java"));
+    }
+
+    @Test
+    public void unicodeEscapedQuoteDoesNotHideCode() {
+        // The escape closes the literal for javac, so the call is code
+        String code = "String s = \"\\u0022 + Runtime.getRuntime().exec(\\\"x\\\") + \\\"\";";
+        SecurityScanner.Finding finding = scanner.findFirst(code, "java");
+        assertNotNull(finding);
+        assertEquals(code.indexOf("Runtime"), finding.getOffset());
+    }
+
+    @Test
+    public void unicodeEscapesInsideNamesAreDecoded() {
+        assertNotNull(scanner.findFirst("\\u0052untime.getRuntime();", "java"));
+    }
+
+    @Test
+    public void escapedBackslashIsNotAUnicodeEscape() {
+        assertNull(scanner.findFirst("String s = \"\\\\u0022 System.exit\";", "java"));
+    }
+
+    @Test
+    public void codeAfterATextBlockIsScanned() {
+        String code = "String s = \"\"\"\n   x\n   \"\"\"; System.exit(0);";
+        SecurityScanner.Finding finding = scanner.findFirst(code, "java");
+        assertNotNull(finding);
+        assertEquals(3, finding.getLine());
+
+        // Not a valid text block opening, so the rest of the line is code
+        assertNotNull(scanner.findFirst("x\"\"\"; System.exit(0);", "java"));
+    }
+
+    @Test
+    public void textBlockLinesAreNotCode() {
+        assertNull(scanner.findFirst("String s = \"\"\"\n   System.exit(0);\n   \\\"\"\" Runtime.getRuntime()\n   \"\"\";", "java"));
+    }
+
+    @Test
+    public void quoteInRegexLiteralDoesNotOpenAString() {
+        String code = "var r = /\"/;\nRuntime.getRuntime().exec(\"x\");\nvar s = \"\";";
+        SecurityScanner.Finding finding = scanner.findFirst(code, "javascript");
+        assertNotNull(finding);
+        assertEquals(2, finding.getLine());
+    }
+
+    @Test
+    public void slashAfterIdentifierIsDivision() {
+        assertNull(scanner.findFirst("var x = a / 2; var s = \"/ System.exit /\";", "javascript"));
+    }
+
+    @Test
+    public void ambiguousSlashFallsBackToUnscopedMatching() {
+        // After ')' the '/' may divide or start a regex; either way nothing is hidden
+        String code = "var x = (a) /\"/; System.exit(0); var y = \"/;";
+        assertNotNull(scanner.findFirst(code, "javascript"));
+    }
+}
@@ -0,0 +1,169 @@
+package com.aiagent.framework.core;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Persistence, crash recovery and compaction of SegmentStore, and long-term memory
+ * promotion from it.
+ */
+public class SegmentStoreTest {
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("segment-test").toFile();
+        file = new File(directory, "memory.seg");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void valuesSurviveReopen() throws Exception {
+        SegmentStore store = new SegmentStore(file);
+        store.put("text", "hello");
+        store.put("count", 42L);
+        store.put("json", new JSONObject().put("a", 1));
+        store.put("list", new ArrayList<>(java.util.Arrays.asList("x", "y")));
+        store.put("gone", "soon");
+        // Readable before the writer has caught up
+        assertEquals("hello", store.get("text"));
+        store.remove("gone");
+        store.close();
+
+        SegmentStore reopened = new SegmentStore(file);
+        assertEquals("hello", reopened.get("text"));
+        assertEquals(42L, reopened.get("count"));
+        assertEquals(1, ((JSONObject) reopened.get("json")).getInt("a"));
+        assertEquals(java.util.Arrays.asList("x", "y"), reopened.get("list"));
+        assertNull(reopened.get("gone"));
+        assertEquals(4, reopened.getEntryCount());
+        reopened.close();
+    }
+
+    @Test
+    public void unencodableValueIsRejectedAlone() throws Exception {
+        SegmentStore store = new SegmentStore(file);
+        store.put("before", "a");
+        // Serializable, but its field is not
+        ArrayList<Object> broken = new ArrayList<>();
+        broken.add(new Object());
+        assertFalse(store.put("broken", broken));
+        store.put("after", "b");
+        store.flush();
+
+        assertEquals(2, store.getPersistedCount());
+        assertEquals(0, store.getFailedCount());
+        assertFalse(store.contains("broken"));
+        store.close();
+
+        SegmentStore reopened = new SegmentStore(file);
+        assertEquals("a", reopened.get("before"));
+        assertEquals("b", reopened.get("after"));
+        assertEquals(2, reopened.getEntryCount());
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailIsCutOff() throws Exception {
+        SegmentStore store = new SegmentStore(file);
+        store.put("kept", "value");
+        store.flush();
+        store.put("torn", "a value long enough to cut in half");
+        store.close();
+
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 10);
+        }
+
+        SegmentStore reopened = new SegmentStore(file);
+        assertEquals("value", reopened.get("kept"));
+        assertNull(reopened.get("torn"));
+        reopened.put("after", "crash");
+        reopened.close();
+
+        SegmentStore again = new SegmentStore(file);
+        assertEquals("crash", again.get("after"));
+        again.close();
+    }
+
+    @Test
+    public void overwritesAreCompactedAway() throws Exception {
+        SegmentStore store = new SegmentStore(file);
+        String value = new String(new char[1000]).replace('\0', 'v');
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.put("key" + i, value + round);
+            }
+            store.flush();
+        }
+
+        assertTrue(store.getCompactionCount() > 0);
+        assertTrue(store.getFileBytes() < 2 * store.getLiveBytes() + 1024 * 1024);
+        assertEquals(value + 19, store.get("key7"));
+        store.close();
+
+        SegmentStore reopened = new SegmentStore(file);
+        assertEquals(100, reopened.getEntryCount());
+        assertEquals(value + 19, reopened.get("key99"));
+        reopened.close();
+    }
+
+    @Test
+    public void longTermMemoryPromotesFromDisk() throws Exception {
+        android.content.Context context = new TestContext(directory);
+        CacheSettings shortTerm = new CacheSettings();
+        // Room for only a handful of entries on the heap
+        CacheSettings longTerm = new CacheSettings().setMaxWeightBytes(2000).setShards(1);
+        MemoryManager memory = new MemoryManager(context, shortTerm, longTerm);
+        for (int i = 0; i < 100; i++) {
+            memory.storeLongTerm("fact" + i, "remembered " + i);
+        }
+        assertTrue(memory.getLongTermCache().getEntryCount() < 100);
+
+        assertEquals("remembered 3", memory.getLongTerm("fact3"));
+        assertEquals(1, memory.getPromotionCount());
+        assertEquals("remembered 3", memory.getLongTermCache().get("fact3"));
+        memory.close();
+
+        MemoryManager restarted = new MemoryManager(context, shortTerm, longTerm);
+        assertEquals("remembered 99", restarted.getLongTerm("fact99"));
+        restarted.close();
+    }
+
+    @Test
+    public void trimKeepsValuesThatAreNotOnDisk() throws Exception {
+        android.content.Context context = new TestContext(directory);
+        MemoryManager memory = new MemoryManager(context);
+        Object heapOnly = new Object();
+        memory.storeLongTerm("plain", "on disk too");
+        memory.storeLongTerm("live", heapOnly);
+
+        memory.onTrimMemory(80);
+
+        assertNull(memory.getLongTermCache().get("plain"));
+        assertEquals("on disk too", memory.getLongTerm("plain"));
+        assertSame(heapOnly, memory.getLongTerm("live"));
+        memory.close();
+    }
+}
@@ -0,0 +1,171 @@
+package com.aiagent.framework.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Eviction order, expiry and weight accounting of ShardedCache, alone and under
+ * concurrent writers.
+ */
+public class ShardedCacheTest {
+    private static final int ENTRY_WEIGHT = 100;
+
+    private static ShardedCache<String, String> cache(long maxWeight, CacheSettings.EvictionPolicy policy) {
+        CacheSettings settings = new CacheSettings().setMaxWeightBytes(maxWeight).setShards(1).setPolicy(policy);
+        return new ShardedCache<>(settings, (key, value) -> ENTRY_WEIGHT);
+    }
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        ShardedCache<String, String> cache = cache(3 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LRU);
+        List<String> evicted = new ArrayList<>();
+        cache.addEvictionListener((key, value, cause) -> evicted.add(key + ":" + cause));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.put("d", "4");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("[b:SIZE]", evicted.toString());
+        assertEquals(3 * ENTRY_WEIGHT, cache.getWeightBytes());
+    }
+
+    @Test
+    public void lfuKeepsFrequentlyUsedEntries() {
+        ShardedCache<String, String> cache = cache(3 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LFU);
+        cache.put("hot", "1");
+        cache.put("warm", "2");
+        for (int i = 0; i < 5; i++) cache.get("hot");
+        cache.get("warm");
+        // A stream of one-off entries only displaces other one-off entries
+        for (int i = 0; i < 20; i++) cache.put("cold" + i, "x");
+
+        assertEquals("1", cache.get("hot"));
+        assertEquals("2", cache.get("warm"));
+        assertEquals("x", cache.get("cold19"));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(19, cache.getEvictionCount());
+    }
+
+    @Test
+    public void lfuAdmitsNewEntryWhenFull() {
+        ShardedCache<String, String> cache = cache(3 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LFU);
+        for (String key : new String[]{"a", "b", "c"}) {
+            cache.put(key, key);
+            cache.get(key);
+            cache.get(key);
+        }
+        cache.put("new", "n");
+
+        assertEquals("n", cache.get("new"));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void lfuOverwriteKeepsFrequency() {
+        ShardedCache<String, String> cache = cache(2 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LFU);
+        cache.put("hot", "1");
+        for (int i = 0; i < 5; i++) cache.get("hot");
+        cache.put("hot", "2");
+        cache.put("cold", "x");
+        cache.get("cold");
+        cache.put("other", "y");
+
+        assertEquals("2", cache.get("hot"));
+        assertNull(cache.get("cold"));
+    }
+
+    @Test
+    public void lfuCountsAge() {
+        ShardedCache<String, String> cache = cache(3 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LFU);
+        cache.put("old", "o");
+        for (int i = 0; i < 100; i++) cache.get("old");
+        cache.put("a", "a");
+        // Enough later use to halve every count several times
+        for (int i = 0; i < 8000; i++) cache.get("a");
+        cache.put("recent", "r");
+        cache.get("recent");
+        cache.get("recent");
+        cache.put("next", "n");
+
+        assertNull(cache.get("old"));
+        assertEquals("r", cache.get("recent"));
+        assertEquals("n", cache.get("next"));
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() throws Exception {
+        ShardedCache<String, String> cache = cache(10 * ENTRY_WEIGHT, CacheSettings.EvictionPolicy.LRU);
+        AtomicLong expired = new AtomicLong();
+        cache.addEvictionListener((key, value, cause) -> {
+            if (cause == ShardedCache.RemovalCause.EXPIRED) expired.incrementAndGet();
+        });
+        cache.put("short", "1", 20);
+        cache.put("forever", "2", 0);
+        cache.put("also-short", "3", 20);
+        Thread.sleep(50);
+
+        assertNull(cache.get("short"));
+        cache.cleanUp();
+        assertEquals("2", cache.get("forever"));
+        assertEquals(2, expired.get());
+        assertEquals(ENTRY_WEIGHT, cache.getWeightBytes());
+    }
+
+    @Test
+    public void oversizedEntryReplacesNothing() {
+        CacheSettings settings = new CacheSettings().setMaxWeightBytes(1000).setShards(1);
+        ShardedCache<String, String> cache = new ShardedCache<>(settings, (key, value) -> value.length());
+        cache.put("k", "small");
+        cache.put("k", new String(new char[2000]));
+
+        assertNull(cache.get("k"));
+        assertEquals(0, cache.getWeightBytes());
+    }
+
+    @Test
+    public void weightStaysWithinBudgetUnderConcurrentWriters() throws Exception {
+        int threads = 8;
+        long budget = 500L * ENTRY_WEIGHT;
+        CacheSettings settings = new CacheSettings().setMaxWeightBytes(budget).setShards(16);
+        ShardedCache<String, String> cache = new ShardedCache<>(settings, (key, value) -> ENTRY_WEIGHT);
+        AtomicLong evicted = new AtomicLong();
+        cache.addEvictionListener((key, value, cause) -> evicted.incrementAndGet());
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    String key = id + "-" + i;
+                    cache.put(key, key);
+                    String value = cache.get(key);
+                    if (value != null && !value.equals(key)) failure.set(key + " -> " + value);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertNull(failure.get());
+        assertTrue(cache.getWeightBytes() <= budget);
+        assertEquals(cache.getEntryCount() * (long) ENTRY_WEIGHT, cache.getWeightBytes());
+        assertEquals(threads * 20_000L, cache.getEntryCount() + evicted.get());
+    }
+}
@@ -0,0 +1,23 @@
+package com.aiagent.framework.core;
+
+import android.content.ContextWrapper;
+
+import java.io.File;
+
+/**
+ * Context for local unit tests whose files directory is a temporary folder.
+ * Other methods fall back to the android.jar defaults set up by Gradle.
+ */
+class TestContext extends ContextWrapper {
+    private final File filesDir;
+
+    TestContext(File filesDir) {
+        super(null);
+        this.filesDir = filesDir;
+    }
+
+    @Override
+    public File getFilesDir() {
+        return filesDir;
+    }
+}
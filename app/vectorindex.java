@@ -0,0 +1,350 @@
+// Embedder.java
+package com.aiagent.framework.core;
+
+/**
+ * Turns text into a fixed-length, L2-normalized vector, so a dot product is the
+ * cosine similarity. A TensorFlow Lite sentence encoder plugs in here once the
+ * model ships; {@link HashingEmbedder} is the deterministic local default.
+ */
+public interface Embedder {
+    int dimension();
+
+    float[] embed(String text);
+}
+
+// HashingEmbedder.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+
+/**
+ * Feature-hashing embedder over word terms and character trigrams. Trigrams let
+ * inflections and typos ("calculate"/"calculator") land near each other.
+ */
+public class HashingEmbedder implements Embedder {
+    private static final float TERM_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "to", "of", "in", "on", "for", "and", "or", "is", "are",
+            "i", "me", "my", "you", "it", "do", "does", "can", "please", "with"));
+
+    private final int dimension;
+
+    public HashingEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        for (String term : KnowledgeIndex.tokenize(text)) {
+            if (STOP_WORDS.contains(term)) continue;
+
+            addFeature(vector, term.hashCode(), TERM_WEIGHT);
+            String padded = "#" + term + "#";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(vector, padded.substring(i, i + 3).hashCode() * 31 + 7, TRIGRAM_WEIGHT);
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private void addFeature(float[] vector, int hash, float weight) {
+        int mixed = mix(hash);
+        int slot = (mixed >>> 1) % dimension;
+        vector[slot] += (mixed & 1) == 0 ? weight : -weight;
+    }
+
+    private static int mix(int h) {
+        // murmur3 finalizer, spreads String.hashCode over all bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        if (norm == 0) return;
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) vector[i] *= scale;
+    }
+}
+
+// VectorIndex.java
+package com.aiagent.framework.core;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Approximate nearest-neighbour index (HNSW) over normalized vectors stored in one
+ * contiguous {@code float[]}.
+ *
+ * Like {@link KnowledgeIndex}, {@link #add} must be called from a single writer and
+ * searches never lock: neighbour lists are immutable arrays swapped in whole, and
+ * vectors are written before the node becomes reachable.
+ */
+public class VectorIndex {
+    private static final int DEFAULT_MAX_NEIGHBORS = 16;
+    private static final int DEFAULT_EF_CONSTRUCTION = 64;
+    private static final int DEFAULT_EF_SEARCH = 48;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int dimension;
+    private final int maxNeighbors;
+    private final int maxNeighborsLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private volatile int efSearch;
+
+    private volatile float[] vectors;
+    private volatile int[] labels;
+    // node -> layer -> neighbour node ids
+    private volatile AtomicReferenceArray<AtomicReferenceArray<int[]>> links;
+    private volatile int size;
+    private volatile EntryPoint entryPoint;
+
+    public VectorIndex(int dimension) {
+        this(dimension, DEFAULT_MAX_NEIGHBORS, DEFAULT_EF_CONSTRUCTION);
+    }
+
+    public VectorIndex(int dimension, int maxNeighbors, int efConstruction) {
+        this.dimension = dimension;
+        this.maxNeighbors = maxNeighbors;
+        this.maxNeighborsLayer0 = maxNeighbors * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(maxNeighbors);
+        this.random = new Random(42);
+        this.efSearch = DEFAULT_EF_SEARCH;
+        this.vectors = new float[INITIAL_CAPACITY * dimension];
+        this.labels = new int[INITIAL_CAPACITY];
+        this.links = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a normalized vector tagged with {@code label}.
+     */
+    public void add(int label, float[] vector) {
+        int node = size;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        labels[node] = label;
+
+        int level = randomLevel();
+        AtomicReferenceArray<int[]> layers = new AtomicReferenceArray<>(level + 1);
+        for (int l = 0; l <= level; l++) {
+            layers.set(l, new int[0]);
+        }
+        links.set(node, layers);
+        size = node + 1;
+
+        EntryPoint entry = entryPoint;
+        if (entry == null) {
+            entryPoint = new EntryPoint(node, level);
+            return;
+        }
+
+        int current = entry.node;
+        for (int l = entry.level; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+
+        for (int l = Math.min(level, entry.level); l >= 0; l--) {
+            List<Neighbor> candidates = searchLayer(vector, current, efConstruction, l);
+            int limit = l == 0 ? maxNeighborsLayer0 : maxNeighbors;
+            int[] neighbors = closest(candidates, maxNeighbors);
+            layers.set(l, neighbors);
+            for (int neighbor : neighbors) {
+                connect(neighbor, node, l, limit);
+            }
+            current = candidates.get(0).id;
+        }
+
+        if (level > entry.level) {
+            entryPoint = new EntryPoint(node, level);
+        }
+    }
+
+    /**
+     * Returns up to {@code k} labels ranked by cosine similarity, best first.
+     */
+    public List<Neighbor> search(float[] query, int k) {
+        EntryPoint entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        int current = entry.node;
+        for (int l = entry.level; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+
+        List<Neighbor> found = searchLayer(query, current, Math.max(efSearch, k), 0);
+        List<Neighbor> results = new ArrayList<>(Math.min(k, found.size()));
+        int[] nodeLabels = labels;
+        for (int i = 0; i < found.size() && results.size() < k; i++) {
+            Neighbor n = found.get(i);
+            results.add(new Neighbor(nodeLabels[n.id], n.similarity));
+        }
+        return results;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int best = start;
+        float bestSimilarity = similarity(query, start);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(best, level)) {
+                float s = similarity(query, neighbor);
+                if (s > bestSimilarity) {
+                    bestSimilarity = s;
+                    best = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best-first search on one layer; returns up to {@code ef} nodes, best first.
+     */
+    private List<Neighbor> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet();
+        visited.set(start);
+        Neighbor first = new Neighbor(start, similarity(query, start));
+
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.similarity, a.similarity));
+        PriorityQueue<Neighbor> results = new PriorityQueue<>((a, b) -> Float.compare(a.similarity, b.similarity));
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Neighbor candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity < results.peek().similarity) {
+                break;
+            }
+            for (int neighbor : neighbors(candidate.id, level)) {
+                if (visited.get(neighbor)) continue;
+                visited.set(neighbor);
+
+                float s = similarity(query, neighbor);
+                if (results.size() < ef || s > results.peek().similarity) {
+                    Neighbor next = new Neighbor(neighbor, s);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Neighbor> ordered = new ArrayList<>(results);
+        ordered.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+        return ordered;
+    }
+
+    private void connect(int node, int newNeighbor, int level, int limit) {
+        AtomicReferenceArray<int[]> layers = links.get(node);
+        int[] current = layers.get(level);
+        int[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = newNeighbor;
+
+        if (updated.length > limit) {
+            float[] base = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+            List<Neighbor> ranked = new ArrayList<>(updated.length);
+            for (int candidate : updated) {
+                ranked.add(new Neighbor(candidate, similarity(base, candidate)));
+            }
+            ranked.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+            updated = closest(ranked, limit);
+        }
+        layers.set(level, updated);
+    }
+
+    private int[] neighbors(int node, int level) {
+        AtomicReferenceArray<int[]> layers = links.get(node);
+        return level < layers.length() ? layers.get(level) : new int[0];
+    }
+
+    private static int[] closest(List<Neighbor> ranked, int limit) {
+        int count = Math.min(limit, ranked.size());
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = ranked.get(i).id;
+        }
+        return ids;
+    }
+
+    private float similarity(float[] query, int node) {
+        float[] data = vectors;
+        int offset = node * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * data[offset + i];
+        }
+        return dot;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = labels.length;
+        if (required <= capacity) return;
+
+        int newCapacity = Math.max(required, capacity * 2);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+        labels = Arrays.copyOf(labels, newCapacity);
+        AtomicReferenceArray<AtomicReferenceArray<int[]>> grown = new AtomicReferenceArray<>(newCapacity);
+        for (int i = 0; i < capacity; i++) {
+            grown.set(i, links.get(i));
+        }
+        links = grown;
+    }
+
+    /**
+     * A node and its similarity to the query; {@link #search} returns caller labels as ids.
+     */
+    public static class Neighbor {
+        public final int id;
+        public final float similarity;
+
+        Neighbor(int id, float similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+    }
+
+    static class EntryPoint {
+        final int node;
+        final int level;
+
+        EntryPoint(int node, int level) {
+            this.node = node;
+            this.level = level;
+        }
+    }
+}